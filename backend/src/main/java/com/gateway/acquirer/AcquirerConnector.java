@@ -0,0 +1,29 @@
+package com.gateway.acquirer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A bank (acquirer) the gateway sends payments to for authorization.
+ *
+ * authorize() must not block: it returns at once and completes the future
+ * with the bank's answer, or exceptionally if the call itself failed
+ * (connection error, bad response). Timeouts, the circuit breaker and the
+ * concurrency limit are applied around every connector by
+ * ResilientAcquirer, so implementations need not handle them.
+ *
+ * The connector in use is chosen by gateway.acquirer.connector, see
+ * AcquirerConfig.
+ */
+public interface AcquirerConnector extends AutoCloseable {
+
+    /**
+     * Short name for configuration and metric tags.
+     */
+    String name();
+
+    CompletableFuture<AcquirerResult> authorize(AcquirerRequest request);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,71 @@
+package com.gateway.acquirer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * gateway.acquirer.* from application.yml, which also holds the defaults of
+ * the simulator profiles.
+ */
+@ConfigurationProperties("gateway.acquirer")
+public record AcquirerProperties(
+        @DefaultValue("simulated") String connector,
+        @DefaultValue("30s") Duration timeout,
+        @DefaultValue("10000") int maxConcurrent,
+        @DefaultValue CircuitBreaker circuitBreaker,
+        @DefaultValue Simulator simulator
+) {
+
+    /**
+     * Opens when at least failure-rate-threshold percent of the last
+     * window-size calls (and at least minimum-calls) failed or timed out.
+     * After open-duration it lets half-open-calls through and closes again
+     * if they stay under the threshold.
+     */
+    public record CircuitBreaker(
+            @DefaultValue("50") double failureRateThreshold,
+            @DefaultValue("100") int windowSize,
+            @DefaultValue("20") int minimumCalls,
+            @DefaultValue("30s") Duration openDuration,
+            @DefaultValue("10") int halfOpenCalls
+    ) {
+    }
+
+    /**
+     * In test mode every payment takes test-delay and approves if
+     * test-success; the profiles are ignored.
+     */
+    public record Simulator(
+            @DefaultValue("false") boolean testMode,
+            @DefaultValue("true") boolean testSuccess,
+            @DefaultValue("1s") Duration testDelay,
+            Profile upi,
+            Profile card,
+            Map<String, Double> networkDeclineRates
+    ) {
+    }
+
+    /**
+     * Latency and failures of one payment method.
+     *
+     * Latency is lognormal: median, spread by sigma (0 for a fixed latency).
+     * With tail-probability it is multiplied by tail-multiplier, and with
+     * stall-probability the bank hangs for stall instead. decline-rate is
+     * the share of payments the bank declines, error-rate the share of
+     * calls that fail outright.
+     */
+    public record Profile(
+            Duration median,
+            @DefaultValue("0") double sigma,
+            @DefaultValue("0") double tailProbability,
+            @DefaultValue("10") double tailMultiplier,
+            @DefaultValue("0") double stallProbability,
+            @DefaultValue("60s") Duration stall,
+            @DefaultValue("0") double declineRate,
+            @DefaultValue("0") double errorRate
+    ) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.gateway.acquirer;
+
+import java.util.UUID;
+
+/**
+ * What the acquirer is asked to authorize. cardNetwork is null for UPI.
+ */
+public record AcquirerRequest(
+        String paymentId,
+        UUID merchantId,
+        int amount,
+        String currency,
+        String method,
+        String cardNetwork
+) {
+}
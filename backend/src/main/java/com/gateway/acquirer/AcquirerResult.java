@@ -0,0 +1,51 @@
+package com.gateway.acquirer;
+
+/**
+ * Outcome of an authorization. Anything but APPROVED fails the payment with
+ * errorCode / errorDescription.
+ */
+public record AcquirerResult(Outcome outcome, String errorCode, String errorDescription) {
+
+    public enum Outcome {
+        APPROVED("success"),
+        DECLINED("failed"),
+        // The gateway gave up: timeout, open circuit or no free capacity
+        UNAVAILABLE("unavailable"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Value for metric outcome tags.
+         */
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private static final AcquirerResult APPROVED = new AcquirerResult(Outcome.APPROVED, null, null);
+
+    public static AcquirerResult approved() {
+        return APPROVED;
+    }
+
+    public static AcquirerResult declined(String errorCode, String errorDescription) {
+        return new AcquirerResult(Outcome.DECLINED, errorCode, errorDescription);
+    }
+
+    public static AcquirerResult unavailable(String errorCode, String errorDescription) {
+        return new AcquirerResult(Outcome.UNAVAILABLE, errorCode, errorDescription);
+    }
+
+    public static AcquirerResult error(String errorDescription) {
+        return new AcquirerResult(Outcome.ERROR, "ACQUIRER_ERROR", errorDescription);
+    }
+
+    public boolean isApproved() {
+        return outcome == Outcome.APPROVED;
+    }
+}
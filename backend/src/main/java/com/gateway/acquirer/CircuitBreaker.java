@@ -0,0 +1,137 @@
+package com.gateway.acquirer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of ResilientAcquirer.
+ *
+ * CLOSED: calls go through; once minimum-calls of the last window-size
+ * calls are in and failure-rate-threshold percent of them failed, the
+ * circuit opens. OPEN: calls are refused for open-duration, then the
+ * circuit goes HALF_OPEN and lets half-open-calls trial calls through; their
+ * failure rate decides between CLOSED and OPEN again.
+ *
+ * Every state change starts a new generation. tryAcquire() returns the
+ * generation a call is admitted in, and record() ignores outcomes from an
+ * earlier one: a slow answer to a call made while closed says nothing about
+ * whether the bank has recovered, so it must not count as a trial.
+ */
+final class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /** Returned by tryAcquire() when the call is not allowed. */
+    static final long REJECTED = -1;
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final LongSupplier nanoClock;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Outcomes of the last window-size calls of this generation, true = failed
+    private final boolean[] window;
+    private int next;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int trialsLeft;
+
+    CircuitBreaker(String name, AcquirerProperties.CircuitBreaker settings) {
+        this(name, settings, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, AcquirerProperties.CircuitBreaker settings, LongSupplier nanoClock) {
+        this.name = name;
+        this.nanoClock = nanoClock;
+        this.failureRateThreshold = settings.failureRateThreshold();
+        this.minimumCalls = settings.minimumCalls();
+        this.openNanos = settings.openDuration().toNanos();
+        this.halfOpenCalls = settings.halfOpenCalls();
+        this.window = new boolean[Math.max(settings.windowSize(), settings.halfOpenCalls())];
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Admits a call: returns the generation to pass to record() with its
+     * outcome, or REJECTED.
+     */
+    synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN);
+            trialsLeft = halfOpenCalls;
+            log.info("Acquirer {} circuit half-open, trying {} calls", name, halfOpenCalls);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (trialsLeft == 0) {
+                return REJECTED;
+            }
+            trialsLeft--;
+        }
+        return generation;
+    }
+
+    synchronized void record(long admittedIn, boolean succeeded) {
+        if (admittedIn != generation) {
+            return; // Answer to a call admitted before the last state change
+        }
+
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[next] = !succeeded;
+        if (!succeeded) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+
+        double failureRate = 100.0 * failures / calls;
+
+        if (state == State.HALF_OPEN) {
+            if (calls >= halfOpenCalls) {
+                if (failureRate >= failureRateThreshold) {
+                    open(failureRate);
+                } else {
+                    transition(State.CLOSED);
+                    log.info("Acquirer {} circuit closed", name);
+                }
+            }
+        } else if (calls >= minimumCalls && failureRate >= failureRateThreshold) {
+            open(failureRate);
+        }
+    }
+
+    private void open(double failureRate) {
+        transition(State.OPEN);
+        openedAt = nanoClock.getAsLong();
+        log.warn("Acquirer {} circuit opened: {}% of recent calls failed", name, Math.round(failureRate));
+    }
+
+    private void transition(State to) {
+        state = to;
+        generation++;
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
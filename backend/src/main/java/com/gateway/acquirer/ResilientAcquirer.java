@@ -0,0 +1,133 @@
+package com.gateway.acquirer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Wraps a connector with the protections every bank call needs:
+ *
+ * - a bulkhead: at most max-concurrent calls in flight, further payments
+ *   fail at once instead of piling up behind a slow bank;
+ * - a timeout per call;
+ * - a circuit breaker (see CircuitBreaker) that stops calling a bank that
+ *   keeps timing out or erroring, and fails payments fast until it has had
+ *   time to recover.
+ *
+ * Declines are answers, so they count as successful calls. Calls that are
+ * not made or not answered in time come back as UNAVAILABLE, failed calls
+ * as ERROR; the returned future never completes exceptionally.
+ *
+ * Published per connector: gateway.acquirer.in.flight,
+ * gateway.acquirer.circuit.state (0 closed, 1 half-open, 2 open),
+ * gateway.acquirer.rejected (reason circuit_open or bulkhead_full) and
+ * gateway.acquirer.timeouts.
+ */
+public class ResilientAcquirer implements AcquirerConnector {
+
+    private static final Logger log = LoggerFactory.getLogger(ResilientAcquirer.class);
+
+    private final AcquirerConnector delegate;
+    private final long timeoutNanos;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker breaker;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
+    private final Counter timeouts;
+
+    public ResilientAcquirer(AcquirerConnector delegate, AcquirerProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeoutNanos = properties.timeout().toNanos();
+        this.bulkhead = new Semaphore(properties.maxConcurrent());
+        this.breaker = new CircuitBreaker(delegate.name(), properties.circuitBreaker());
+
+        String connector = delegate.name();
+        int maxConcurrent = properties.maxConcurrent();
+
+        Gauge.builder("gateway.acquirer.in.flight", bulkhead, b -> maxConcurrent - b.availablePermits())
+                .description("Acquirer calls awaiting an answer")
+                .tag("connector", connector)
+                .register(meterRegistry);
+        Gauge.builder("gateway.acquirer.circuit.state", breaker, b -> b.state().ordinal())
+                .description("Acquirer circuit breaker: 0 closed, 1 half-open, 2 open")
+                .tag("connector", connector)
+                .register(meterRegistry);
+
+        this.circuitOpenRejections = rejections(meterRegistry, connector, "circuit_open");
+        this.bulkheadRejections = rejections(meterRegistry, connector, "bulkhead_full");
+        this.timeouts = Counter.builder("gateway.acquirer.timeouts")
+                .description("Acquirer calls that were not answered within the timeout")
+                .tag("connector", connector)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public CompletableFuture<AcquirerResult> authorize(AcquirerRequest request) {
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.increment();
+            return CompletableFuture.completedFuture(
+                    AcquirerResult.unavailable("ACQUIRER_BUSY", "Too many payments in progress with the bank"));
+        }
+
+        long generation = breaker.tryAcquire();
+        if (generation == CircuitBreaker.REJECTED) {
+            bulkhead.release();
+            circuitOpenRejections.increment();
+            return CompletableFuture.completedFuture(
+                    AcquirerResult.unavailable("ACQUIRER_UNAVAILABLE", "Bank is unavailable, retry later"));
+        }
+
+        CompletableFuture<AcquirerResult> call;
+        try {
+            call = delegate.authorize(request);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        return call.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS).handle((result, error) -> {
+            bulkhead.release();
+            breaker.record(generation, error == null);
+
+            if (error == null) {
+                return result;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (cause instanceof TimeoutException) {
+                timeouts.increment();
+                return AcquirerResult.unavailable("ACQUIRER_TIMEOUT", "Bank did not respond in time");
+            }
+
+            log.warn("Acquirer {} failed for payment {}: {}", delegate.name(), request.paymentId(), cause.toString());
+            return AcquirerResult.error("Bank request failed");
+        });
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String connector, String reason) {
+        return Counter.builder("gateway.acquirer.rejected")
+                .description("Payments failed without calling the acquirer")
+                .tag("connector", connector)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,93 @@
+package com.gateway.acquirer;
+
+import com.gateway.acquirer.AcquirerProperties.Profile;
+import com.gateway.acquirer.AcquirerProperties.Simulator;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local stand-in for a bank, for development and load tests.
+ *
+ * Each call draws a latency and an outcome from the profile of its payment
+ * method (see AcquirerProperties.Profile); card payments may use a decline
+ * rate of their own per network. Answers are delivered by one timer thread,
+ * so thousands of slow payments in flight cost no threads.
+ */
+public class SimulatedAcquirer implements AcquirerConnector {
+
+    private final Simulator settings;
+    private final ScheduledThreadPoolExecutor timer;
+
+    public SimulatedAcquirer(Simulator settings) {
+        this.settings = settings;
+        this.timer = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().daemon().name("acquirer-simulator").factory());
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public String name() {
+        return "simulated";
+    }
+
+    @Override
+    public CompletableFuture<AcquirerResult> authorize(AcquirerRequest request) {
+        CompletableFuture<AcquirerResult> answer = new CompletableFuture<>();
+
+        if (settings.testMode()) {
+            AcquirerResult result = settings.testSuccess() ? AcquirerResult.approved() : declined();
+            timer.schedule(() -> answer.complete(result), settings.testDelay().toNanos(), TimeUnit.NANOSECONDS);
+            return answer;
+        }
+
+        Profile profile = "upi".equals(request.method()) ? settings.upi() : settings.card();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long latencyNanos = latencyNanos(profile, random);
+
+        if (random.nextDouble() < profile.errorRate()) {
+            timer.schedule(() -> answer.completeExceptionally(
+                    new IllegalStateException("Simulated acquirer error")), latencyNanos, TimeUnit.NANOSECONDS);
+            return answer;
+        }
+
+        AcquirerResult result = random.nextDouble() < declineRate(profile, request.cardNetwork())
+                ? declined()
+                : AcquirerResult.approved();
+        timer.schedule(() -> answer.complete(result), latencyNanos, TimeUnit.NANOSECONDS);
+        return answer;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private static long latencyNanos(Profile profile, ThreadLocalRandom random) {
+        if (random.nextDouble() < profile.stallProbability()) {
+            return profile.stall().toNanos();
+        }
+
+        double latency = profile.median().toNanos() * Math.exp(profile.sigma() * random.nextGaussian());
+        if (random.nextDouble() < profile.tailProbability()) {
+            latency *= profile.tailMultiplier();
+        }
+        return (long) latency;
+    }
+
+    private double declineRate(Profile profile, String cardNetwork) {
+        Map<String, Double> byNetwork = settings.networkDeclineRates();
+        if (cardNetwork != null && byNetwork != null && byNetwork.containsKey(cardNetwork)) {
+            return byNetwork.get(cardNetwork);
+        }
+        return profile.declineRate();
+    }
+
+    private static AcquirerResult declined() {
+        return AcquirerResult.declined("PAYMENT_FAILED", "Bank declined transaction");
+    }
+}
@@ -0,0 +1,29 @@
+package com.gateway.config;
+
+import com.gateway.acquirer.AcquirerConnector;
+import com.gateway.acquirer.AcquirerProperties;
+import com.gateway.acquirer.ResilientAcquirer;
+import com.gateway.acquirer.SimulatedAcquirer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The acquirer connector selected by gateway.acquirer.connector, wrapped in
+ * ResilientAcquirer. A new bank integration is an AcquirerConnector plus a
+ * case here.
+ */
+@Configuration
+@EnableConfigurationProperties(AcquirerProperties.class)
+public class AcquirerConfig {
+
+    @Bean
+    public AcquirerConnector acquirerConnector(AcquirerProperties properties, MeterRegistry meterRegistry) {
+        AcquirerConnector connector = switch (properties.connector()) {
+            case "simulated" -> new SimulatedAcquirer(properties.simulator());
+            default -> throw new IllegalStateException("Unknown acquirer connector: " + properties.connector());
+        };
+        return new ResilientAcquirer(connector, properties, meterRegistry);
+    }
+}
@@ -0,0 +1,124 @@
+package com.gateway.config;
+
+import com.gateway.util.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load shedding in front of the connection pool.
+ *
+ * With gateway.admission.max-concurrent set (the virtual profile sets it to
+ * the pool size), at most that many API requests run at once; the rest wait
+ * in a fair queue for up to acquire-timeout and are then turned away with
+ * 503 AT_CAPACITY and Retry-After. Without a limit, virtual threads let
+ * thousands of requests queue inside Hikari, each holding its socket and
+ * request state, and they all fail together once connection-timeout
+ * passes.
+ *
+ * Requests that still fail to get a connection in time
+ * (SQLTransientConnectionException, also without a limit) get the same
+ * 503 instead of a 500.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter queueTimeouts;
+    private final Counter poolTimeouts;
+
+    public AdmissionControlFilter(
+            @Value("${gateway.admission.max-concurrent:0}") int maxConcurrent,
+            @Value("${gateway.admission.acquire-timeout:100ms}") Duration acquireTimeout,
+            MeterRegistry meterRegistry
+    ) {
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.queueTimeouts = meterRegistry.counter("gateway.admission.rejected", "reason", "queue_timeout");
+        this.poolTimeouts = meterRegistry.counter("gateway.admission.rejected", "reason", "pool_timeout");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        if (permits != null && !acquire()) {
+            queueTimeouts.increment();
+            sendAtCapacity(response);
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | RuntimeException e) {
+            if (!isPoolTimeout(e) || response.isCommitted()) {
+                throw e;
+            }
+            poolTimeouts.increment();
+            sendAtCapacity(response);
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Hikari throws SQLTransientConnectionException when connection-timeout
+    // passes; Spring and the servlet wrap it
+    private static boolean isPoolTimeout(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sendAtCapacity(HttpServletResponse response) throws IOException {
+        ResponseEntity<byte[]> error = ErrorResponse.AT_CAPACITY;
+        byte[] body = error.getBody();
+        response.resetBuffer();
+        response.setStatus(error.getStatusCode().value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, error.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+}
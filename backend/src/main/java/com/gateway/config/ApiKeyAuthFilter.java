@@ -1,8 +1,10 @@
 package com.gateway.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gateway.models.Merchant;
-import com.gateway.repositories.MerchantRepository;
+import com.gateway.services.MerchantCredentialCache;
+import com.gateway.services.MerchantRateLimiter;
+import com.gateway.services.PaymentMetrics;
+import com.gateway.util.ErrorResponse;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,17 +14,23 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
-    private final MerchantRepository merchantRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    public ApiKeyAuthFilter(MerchantRepository merchantRepository) {
-        this.merchantRepository = merchantRepository;
+    private final MerchantCredentialCache credentialCache;
+    private final MerchantRateLimiter rateLimiter;
+    private final PaymentMetrics metrics;
+
+    public ApiKeyAuthFilter(
+            MerchantCredentialCache credentialCache,
+            MerchantRateLimiter rateLimiter,
+            PaymentMetrics metrics
+    ) {
+        this.credentialCache = credentialCache;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
     }
 
     /**
@@ -32,6 +40,7 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
     protected boolean shouldNotFilter(HttpServletRequest request) {
         String path = request.getRequestURI();
 
+        // Actuator is not served on this port (see management.server.port)
         return path.equals("/health")
                 || path.contains("/public")
                 || path.startsWith("/api/v1/checkout");
@@ -47,27 +56,41 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
             FilterChain filterChain
     ) throws ServletException, IOException {
 
+        long start = System.nanoTime();
         String apiKey = request.getHeader("X-Api-Key");
         String apiSecret = request.getHeader("X-Api-Secret");
 
         // Missing headers
         if (apiKey == null || apiSecret == null) {
+            metrics.recordAuth("rejected", start);
             sendAuthError(response);
             return;
         }
 
-        Optional<Merchant> merchantOpt = merchantRepository.findByApiKey(apiKey);
+        Merchant merchant = credentialCache.authenticate(apiKey, apiSecret);
 
         // Invalid / inactive merchant
-        if (merchantOpt.isEmpty()
-                || !merchantOpt.get().getApiSecret().equals(apiSecret)
-                || !merchantOpt.get().isActive()) {
+        if (merchant == null) {
+            metrics.recordAuth("rejected", start);
             sendAuthError(response);
             return;
         }
 
+        // Per-merchant rate limit, before the request can touch the database
+        long waitNanos = rateLimiter.tryAcquire(merchant);
+        if (waitNanos > 0) {
+            metrics.recordAuth("throttled", start);
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+            response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+            sendError(response, 429, ErrorResponse.json("RATE_LIMIT_EXCEEDED",
+                    "Too many requests, retry after " + retryAfterSeconds + " seconds"));
+            return;
+        }
+
+        metrics.recordAuth("authenticated", start);
+
         // Attach merchant for downstream controllers
-        request.setAttribute("merchant", merchantOpt.get());
+        request.setAttribute("merchant", merchant);
 
         filterChain.doFilter(request, response);
     }
@@ -76,29 +99,19 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
      * Standard authentication error response
      */
     private void sendAuthError(HttpServletResponse response) throws IOException {
+        sendError(response, HttpServletResponse.SC_UNAUTHORIZED, ErrorResponse.AUTH_ERROR_JSON);
+    }
+
+    private void sendError(HttpServletResponse response, int status, byte[] body) throws IOException {
         if (response.isCommitted()) {
             return;
         }
 
         response.resetBuffer();
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setStatus(status);
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-
-        String body = objectMapper.writeValueAsString(
-                new ErrorResponse(
-                        new ErrorDetail(
-                                "AUTHENTICATION_ERROR",
-                                "Invalid API credentials"
-                        )
-                )
-        );
-
-        response.getWriter().write(body);
-        response.getWriter().flush();
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
     }
-
-    // ===== Response DTOs =====
-    record ErrorResponse(ErrorDetail error) {}
-    record ErrorDetail(String code, String description) {}
 }
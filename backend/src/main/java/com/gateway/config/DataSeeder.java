@@ -2,22 +2,34 @@ package com.gateway.config;
 
 import com.gateway.models.Merchant;
 import com.gateway.repositories.MerchantRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Configuration
 public class DataSeeder {
 
     @Bean
-    CommandLineRunner seedMerchant(MerchantRepository merchantRepository) {
+    CommandLineRunner seedMerchant(
+            MerchantRepository merchantRepository,
+            @Value("${TEST_WEBHOOK_URL:}") String webhookUrl
+    ) {
         return args -> {
 
             String testEmail = "test@example.com";
 
-            if (merchantRepository.findByEmail(testEmail).isPresent()) {
+            Optional<Merchant> existing = merchantRepository.findByEmail(testEmail);
+            if (existing.isPresent()) {
+                // Lets a local run point the test merchant at a webhook receiver
+                Merchant merchant = existing.get();
+                if (!webhookUrl.isBlank() && !webhookUrl.equals(merchant.getWebhookUrl())) {
+                    merchant.setWebhookUrl(webhookUrl);
+                    merchantRepository.save(merchant);
+                }
                 return;
             }
 
@@ -27,6 +39,7 @@ public class DataSeeder {
             merchant.setEmail(testEmail);
             merchant.setApiKey("key_test_abc123");
             merchant.setApiSecret("secret_test_xyz789");
+            merchant.setWebhookUrl(webhookUrl.isBlank() ? null : webhookUrl);
 
             merchantRepository.save(merchant);
         };
@@ -0,0 +1,94 @@
+package com.gateway.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Two pools: the primary (spring.datasource) for writes and anything that
+ * must see them, and readDataSource / readJdbcTemplate for read-only work,
+ * see ReadRoutingDataSource. Unqualified DataSource and JdbcTemplate
+ * injection points get the primary.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary-pool");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public ReadRoutingDataSource readDataSource(
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.read-datasource.url:}") String url,
+            @Value("${gateway.read-datasource.username:}") String username,
+            @Value("${gateway.read-datasource.password:}") String password,
+            @Value("${gateway.read-datasource.pool-size:10}") int poolSize,
+            @Value("${gateway.read-datasource.connection-timeout-ms:5000}") long connectionTimeoutMs,
+            @Value("${gateway.read-datasource.max-lag:5s}") Duration maxLag,
+            @Value("${gateway.read-datasource.lag-check-interval-ms:1000}") long lagCheckIntervalMs
+    ) {
+        boolean replica = !url.isBlank();
+
+        HikariDataSource readPool = readPool("read-pool",
+                replica ? url : properties.determineUrl(),
+                username.isBlank() ? properties.determineUsername() : username,
+                password.isBlank() ? properties.determinePassword() : password,
+                poolSize, connectionTimeoutMs, meterRegistry);
+
+        // Reads that cannot use the replica go to the primary through a pool
+        // of their own, not the write pool; it only opens connections while
+        // the replica is unusable
+        HikariDataSource fallbackPool = null;
+        if (replica) {
+            fallbackPool = readPool("primary-read-pool", properties.determineUrl(),
+                    properties.determineUsername(), properties.determinePassword(),
+                    poolSize, connectionTimeoutMs, meterRegistry);
+            fallbackPool.setMinimumIdle(0);
+        }
+
+        return new ReadRoutingDataSource(readPool, fallbackPool, maxLag,
+                Duration.ofMillis(lagCheckIntervalMs), meterRegistry);
+    }
+
+    private static HikariDataSource readPool(String name, String url, String username, String password,
+                                             int poolSize, long connectionTimeoutMs, MeterRegistry meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(poolSize);
+        pool.setConnectionTimeout(connectionTimeoutMs);
+        pool.setReadOnly(true);
+        pool.setMetricRegistry(meterRegistry);
+        return pool;
+    }
+
+    @Bean
+    public JdbcTemplate readJdbcTemplate(@Qualifier("readDataSource") DataSource readDataSource) {
+        return new JdbcTemplate(readDataSource);
+    }
+}
@@ -0,0 +1,21 @@
+package com.gateway.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tuning for the application's one ObjectMapper, which writes every JSON
+ * response, stored idempotent responses and NDJSON exports. Inject it
+ * rather than creating new ones; Module beans are registered on it by
+ * Spring Boot.
+ */
+@Configuration
+public class JacksonConfig {
+
+    // Generated accessors instead of reflection for every property read
+    @Bean
+    BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,140 @@
+package com.gateway.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource for read-only work: public order fetches, payment lookups,
+ * listings, exports and health checks.
+ *
+ * Reads get their own pool (read-pool), so they can never hold the
+ * connections that payment inserts and status updates wait for. The pool
+ * points at a replica when one is configured, otherwise at the primary
+ * database.
+ *
+ * The replica's replay lag is checked every lag-check-interval, on a thread
+ * of its own so a slow check does not hold up the scheduled jobs. While it
+ * is above max-lag, or the replica cannot be reached, reads are routed to
+ * the primary through a second read-only pool of the same size (fallback
+ * pool), so falling back cannot starve the write pool either. A replica
+ * may not have a row the primary just wrote, so callers that get "not
+ * found" from it should retry on the primary (see routesToReplica()).
+ */
+public class ReadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadRoutingDataSource.class);
+
+    // Zero when the replica has replayed everything it received, so an idle
+    // primary does not look like lag
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+            END
+            """;
+
+    private enum Target { READ_POOL, FALLBACK_POOL }
+
+    private final HikariDataSource readPool;
+    private final HikariDataSource fallbackPool;
+    private final JdbcTemplate lagQuery;
+    private final boolean replica;
+    private final double maxLagSeconds;
+    private final ScheduledExecutorService lagChecker;
+
+    private volatile boolean readPoolUsable = true;
+    private volatile double lagSeconds;
+
+    /**
+     * fallbackPool is null when readPool points at the primary already.
+     */
+    public ReadRoutingDataSource(
+            HikariDataSource readPool,
+            HikariDataSource fallbackPool,
+            Duration maxLag,
+            Duration lagCheckInterval,
+            MeterRegistry meterRegistry
+    ) {
+        this.readPool = readPool;
+        this.fallbackPool = fallbackPool;
+        this.lagQuery = new JdbcTemplate(readPool);
+        this.replica = fallbackPool != null;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+
+        setTargetDataSources(replica
+                ? Map.of(Target.READ_POOL, readPool, Target.FALLBACK_POOL, fallbackPool)
+                : Map.of(Target.READ_POOL, readPool));
+        setDefaultTargetDataSource(readPool);
+
+        if (replica) {
+            Gauge.builder("gateway.db.replica.lag", this, ds -> ds.lagSeconds)
+                    .description("Replay lag of the read replica")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+
+            lagChecker = new ScheduledThreadPoolExecutor(1,
+                    Thread.ofPlatform().daemon().name("replica-lag-check").factory());
+            lagChecker.scheduleWithFixedDelay(this::checkLag, 0, lagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            lagChecker = null;
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return readPoolUsable ? Target.READ_POOL : Target.FALLBACK_POOL;
+    }
+
+    /**
+     * True if reads currently go to a replica, which may be behind the
+     * primary.
+     */
+    public boolean routesToReplica() {
+        return replica && readPoolUsable;
+    }
+
+    private void checkLag() {
+        boolean usable;
+        try {
+            Double lag = lagQuery.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = lag != null ? lag : Double.NaN;
+            usable = lag != null && lag <= maxLagSeconds;
+        } catch (Exception e) {
+            lagSeconds = Double.NaN;
+            usable = false;
+        }
+
+        if (usable != readPoolUsable) {
+            if (usable) {
+                log.info("Read replica caught up (lag {}s), routing reads to it again", lagSeconds);
+            } else if (Double.isNaN(lagSeconds)) {
+                log.warn("Read replica unreachable or its lag is unknown, routing reads to the primary");
+            } else {
+                log.warn("Read replica lag {}s is over {}s, routing reads to the primary", lagSeconds, maxLagSeconds);
+            }
+            readPoolUsable = usable;
+        }
+    }
+
+    public void close() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        readPool.close();
+        if (fallbackPool != null) {
+            fallbackPool.close();
+        }
+    }
+}
@@ -1,166 +1,205 @@
 package com.gateway.controllers;
 
+import com.gateway.acquirer.AcquirerRequest;
+import com.gateway.config.ReadRoutingDataSource;
 import com.gateway.controllers.PaymentController.Card;
+import com.gateway.models.Payment;
+import com.gateway.models.PaymentStatus;
+import com.gateway.services.IdGenerator;
+import com.gateway.services.IdempotencyService;
+import com.gateway.services.PaymentEventHub;
+import com.gateway.services.PaymentInserter;
+import com.gateway.services.PaymentInserter.Created;
+import com.gateway.services.PaymentMetrics;
+import com.gateway.services.PaymentMetrics.Flow;
+import com.gateway.services.PaymentMetrics.Stage;
+import com.gateway.services.PaymentProcessor;
+import com.gateway.util.CardValidationResult;
+import com.gateway.util.CreatedAtRange;
+import com.gateway.util.ErrorResponse;
+import com.gateway.util.PaymentValidationUtil;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.Instant;
-import java.util.Map;
-import java.util.Random;
-import java.util.regex.Pattern;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/checkout")
 public class CheckoutController {
 
-    private final JdbcTemplate jdbcTemplate;
-    private final Random random = new Random();
+    private static final int MAX_ORDER_ID_LENGTH = 64; // orders.id
 
-    public CheckoutController(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+    private final ReadRoutingDataSource readDataSource;
+    private final PaymentProcessor paymentProcessor;
+    private final PaymentInserter paymentInserter;
+    private final IdGenerator idGenerator;
+    private final IdempotencyService idempotencyService;
+    private final PaymentEventHub eventHub;
+    private final PaymentMetrics metrics;
+
+    public CheckoutController(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("readJdbcTemplate") JdbcTemplate readJdbcTemplate,
+            ReadRoutingDataSource readDataSource,
+            PaymentProcessor paymentProcessor,
+            PaymentInserter paymentInserter,
+            IdGenerator idGenerator,
+            IdempotencyService idempotencyService,
+            PaymentEventHub eventHub,
+            PaymentMetrics metrics
+    ) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+        this.readDataSource = readDataSource;
+        this.paymentProcessor = paymentProcessor;
+        this.paymentInserter = paymentInserter;
+        this.idGenerator = idGenerator;
+        this.idempotencyService = idempotencyService;
+        this.eventHub = eventHub;
+        this.metrics = metrics;
     }
 
     // =========================
     // PUBLIC PAY (NO AUTH)
     // =========================
     @PostMapping("/pay")
-    public ResponseEntity<?> pay(@RequestBody CheckoutRequest request) {
+    public ResponseEntity<?> pay(
+            @RequestBody CheckoutRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        // Checkout has no merchant credentials, so keys are scoped to the
+        // order; checked first so the scope is always a real order id
+        if (request.order_id == null || request.order_id.isBlank()) {
+            return ResponseEntity.badRequest().body(ErrorResponse.badRequest("order_id is required"));
+        }
+        if (request.order_id.length() > MAX_ORDER_ID_LENGTH) {
+            return ErrorResponse.ORDER_NOT_FOUND;
+        }
+
+        return idempotencyService.execute("checkout:" + request.order_id, idempotencyKey, request,
+                () -> create(request));
+    }
+
+    private ResponseEntity<?> create(CheckoutRequest request) {
 
-        // 1. Order lookup
-        var orders = jdbcTemplate.queryForList(
-                "SELECT amount, currency, merchant_id FROM orders WHERE id = ?",
-                request.order_id
-        );
+        // Checkout treats anything but upi as a card payment
+        boolean upi = "upi".equals(request.method);
+        Flow flow = Flow.of(PaymentMetrics.CHECKOUT, upi ? "upi" : "card");
 
-        if (orders.isEmpty()) {
-            return notFound("Order not found");
+        // 1. Validate
+        Card card = request.card;
+        CardValidationResult result = upi || card == null
+                ? null
+                : PaymentValidationUtil.validateCard(card.number, card.expiry_month, card.expiry_year, card.cvv);
+
+        if (upi && !PaymentValidationUtil.isValidVpa(request.vpa)) {
+            return ErrorResponse.INVALID_VPA;
         }
 
-        int amount = (int) orders.get(0).get("amount");
-        String currency = orders.get(0).get("currency").toString();
-        Object merchantId = orders.get(0).get("merchant_id");
-
-        String paymentId = generateId("pay_");
-
-        // ---------- UPI ----------
-        if ("upi".equals(request.method)) {
-
-            if (request.vpa == null || !isValidVpa(request.vpa)) {
-                return badRequest("INVALID_VPA", "Invalid VPA format");
-            }
-
-            jdbcTemplate.update("""
-                INSERT INTO payments
-                (id, order_id, merchant_id, amount, currency, method, status, vpa,
-                 created_at, updated_at)
-                VALUES (?, ?, ?, ?, ?, 'upi', 'processing', ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-            """, paymentId, request.order_id, merchantId, amount, currency, request.vpa);
-
-            process(paymentId, true);
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(
-                    Map.of(
-                            "id", paymentId,
-                            "status", "processing",
-                            "method", "upi",
-                            "amount", amount,
-                            "currency", currency,
-                            "created_at", Instant.now().toString()
-                    )
-            );
+        if (!upi && (result == null || !result.valid())) {
+            return ErrorResponse.cardError(result);
         }
 
-        // ---------- CARD ----------
-        Card card = request.card;
+        if (paymentProcessor.isSaturated()) {
+            return ErrorResponse.AT_CAPACITY;
+        }
 
-        if (card == null || !luhn(card.number)) {
-            return badRequest("INVALID_CARD", "Card validation failed");
+        // 2. Insert, copying amount, currency and merchant from the order
+        String paymentId = idGenerator.next("pay_");
+
+        Created created = metrics.time(Stage.INSERT, flow, () -> paymentInserter.insertForCheckout(
+                paymentId, request.order_id, upi ? "upi" : "card",
+                upi ? request.vpa : null, upi ? null : result.network(), upi ? null : result.last4()),
+                inserted -> inserted != null ? "success" : "order_not_found");
+
+        if (created == null) {
+            return ErrorResponse.ORDER_NOT_FOUND;
         }
 
-        String network = detect(card.number);
-        String last4 = card.number.substring(card.number.length() - 4);
-
-        jdbcTemplate.update("""
-            INSERT INTO payments
-            (id, order_id, merchant_id, amount, currency, method, status,
-             card_network, card_last4, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, 'card', 'processing', ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-        """, paymentId, request.order_id, merchantId, amount, currency, network, last4);
-
-        process(paymentId, false);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(
-                Map.of(
-                        "id", paymentId,
-                        "status", "processing",
-                        "method", "card",
-                        "amount", amount,
-                        "currency", currency,
-                        "card_network", network,
-                        "card_last4", last4,
-                        "created_at", Instant.now().toString()
-                )
-        );
+        // 3. Hand off to the bank
+        Payment payment = created.payment();
+        paymentProcessor.process(new AcquirerRequest(paymentId, created.merchantId(), payment.amount(),
+                payment.currency(), payment.method(), payment.cardNetwork()), flow);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(payment.forCheckout());
     }
 
     // =========================
-    // PROCESS
+    // PAYMENT STATUS STREAM (SSE)
     // =========================
-    private void process(String paymentId, boolean upi) {
-        try { Thread.sleep(1500); } catch (InterruptedException ignored) {}
+    // One "status" event with the current status, then one with the final
+    // status once it commits; the stream closes after that
+    @GetMapping(path = "/payments/{paymentId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> paymentEvents(@PathVariable String paymentId) {
 
-        boolean success = upi ? random.nextInt(10) < 9 : random.nextInt(100) < 95;
+        PaymentStatus current = paymentStatus(readJdbcTemplate, paymentId);
 
-        jdbcTemplate.update(
-                "UPDATE payments SET status=?, updated_at=CURRENT_TIMESTAMP WHERE id=?",
-                success ? "success" : "failed", paymentId
-        );
-    }
+        // A replica may not have a payment created moments ago
+        if (current == null && readDataSource.routesToReplica()) {
+            current = paymentStatus(jdbcTemplate, paymentId);
+        }
 
-    // =========================
-    // VALIDATION
-    // =========================
-    private boolean isValidVpa(String vpa) {
-        return Pattern.matches("^[a-zA-Z0-9._-]+@[a-zA-Z0-9]+$", vpa);
-    }
+        if (current == null) {
+            return streamError(HttpStatus.NOT_FOUND, "NOT_FOUND_ERROR", "Payment not found");
+        }
 
-    private boolean luhn(String n) {
-        int sum = 0; boolean alt = false;
-        for (int i = n.length() - 1; i >= 0; i--) {
-            int d = n.charAt(i) - '0';
-            if (alt) { d *= 2; if (d > 9) d -= 9; }
-            sum += d; alt = !alt;
+        if (!"processing".equals(current.status())) {
+            return ResponseEntity.ok(PaymentEventHub.finished(current));
         }
-        return sum % 10 == 0;
-    }
 
-    private String detect(String n) {
-        if (n.startsWith("4")) return "visa";
-        if (n.startsWith("5")) return "mastercard";
-        if (n.startsWith("6")) return "rupay";
-        return "unknown";
+        SseEmitter emitter = eventHub.subscribe(paymentId, current);
+
+        if (emitter == null) {
+            return streamError(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_UNAVAILABLE",
+                    "Too many open status streams, poll instead");
+        }
+
+        // The payment may have finished between the lookup and subscribe.
+        // Checked on the primary: a lagging replica would miss it.
+        PaymentStatus latest = paymentStatus(jdbcTemplate, paymentId);
+        if (latest != null && !"processing".equals(latest.status())) {
+            eventHub.publish(paymentId, latest);
+        }
+
+        return ResponseEntity.ok(emitter);
     }
 
-    private String generateId(String p) {
-        String c = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        StringBuilder s = new StringBuilder(p);
-        for (int i = 0; i < 16; i++) s.append(c.charAt(random.nextInt(c.length())));
-        return s.toString();
+    private PaymentStatus paymentStatus(JdbcTemplate source, String paymentId) {
+        CreatedAtRange createdAt = CreatedAtRange.of(paymentId);
+        PaymentStatus status = paymentStatus(source, paymentId, createdAt);
+        // An id from before the time prefix may have decoded to a wrong time
+        if (status == null && createdAt.bounded()) {
+            status = paymentStatus(source, paymentId, CreatedAtRange.UNBOUNDED);
+        }
+        return status;
     }
 
-    private ResponseEntity<?> badRequest(String c, String m) {
-        return ResponseEntity.badRequest().body(
-                Map.of("error", Map.of("code", c, "description", m))
-        );
+    private static PaymentStatus paymentStatus(JdbcTemplate source, String paymentId, CreatedAtRange createdAt) {
+        List<PaymentStatus> rows = source.query(
+                "SELECT id, status, error_code, error_description FROM payments"
+                        + " WHERE id = ? AND created_at >= ? AND created_at < ?",
+                PaymentStatus.ROW_MAPPER, paymentId, createdAt.from(), createdAt.to());
+        return rows.isEmpty() ? null : rows.get(0);
     }
 
-    private ResponseEntity<?> notFound(String m) {
-        return ResponseEntity.status(404).body(
-                Map.of("error", Map.of("code", "NOT_FOUND_ERROR", "description", m))
-        );
+    // SSE endpoints must return an emitter, so errors are sent as an "error" event
+    private ResponseEntity<SseEmitter> streamError(HttpStatus status, String code, String description) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(ErrorResponse.custom(code, description)));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.status(status).body(emitter);
     }
 
     // =========================
@@ -1,6 +1,7 @@
 package com.gateway.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,7 +15,9 @@ import java.util.Map;
 @RestController
 public class HealthController {
 
+    // Read pool, so health checks never take a connection a payment needs
     @Autowired
+    @Qualifier("readDataSource")
     private DataSource dataSource;
 
     @GetMapping("/health")
@@ -1,25 +1,59 @@
 package com.gateway.controllers;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.gateway.models.Merchant;
+import com.gateway.models.Order;
+import com.gateway.models.OrderSnapshot;
+import com.gateway.services.IdGenerator;
+import com.gateway.services.OrderLookupService;
+import com.gateway.util.ErrorResponse;
+import com.gateway.util.KeysetPagination;
+import com.gateway.util.PageCursor;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
-import java.util.Map;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/orders")
 public class OrderController {
 
-    private final JdbcTemplate jdbcTemplate;
-    private final Random random = new Random();
+    private static final String INSERT_SQL = """
+            INSERT INTO orders
+            (id, merchant_id, amount, currency, status, created_at, updated_at)
+            VALUES (?, ?, ?, 'INR', 'created', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            """;
 
-    public OrderController(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+    private final OrderLookupService orderLookupService;
+    private final IdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchMaxSize;
+
+    public OrderController(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("readJdbcTemplate") JdbcTemplate readJdbcTemplate,
+            OrderLookupService orderLookupService,
+            IdGenerator idGenerator,
+            PlatformTransactionManager transactionManager,
+            @Value("${gateway.orders.batch-max-size:1000}") int batchMaxSize
+    ) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+        this.orderLookupService = orderLookupService;
+        this.idGenerator = idGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchMaxSize = batchMaxSize;
     }
 
     // =========================
@@ -34,24 +68,14 @@ public class OrderController {
         Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
 
         if (merchant == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
-                    Map.of("error", Map.of(
-                            "code", "AUTHENTICATION_ERROR",
-                            "description", "Invalid API credentials"
-                    ))
-            );
+            return ErrorResponse.UNAUTHORIZED;
         }
 
         if (request.amount == null || request.amount < 100) {
-            return ResponseEntity.badRequest().body(
-                    Map.of("error", Map.of(
-                            "code", "BAD_REQUEST_ERROR",
-                            "description", "amount must be at least 100"
-                    ))
-            );
+            return ResponseEntity.badRequest().body(ErrorResponse.badRequest("amount must be at least 100"));
         }
 
-        String orderId = generateId("order_");
+        String orderId = idGenerator.next("order_");
 
         jdbcTemplate.update("""
             INSERT INTO orders
@@ -59,63 +83,144 @@ public class OrderController {
             VALUES (?, ?, ?, 'INR', 'created', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
         """, orderId, merchant.getId(), request.amount);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(
-                Map.of(
-                        "id", orderId,
-                        "merchant_id", merchant.getId().toString(),
-                        "amount", request.amount,
-                        "currency", "INR",
-                        "status", "created",
-                        "created_at", Instant.now().toString()
-                )
-        );
+        OrderSnapshot order = new OrderSnapshot(orderId, merchant.getId(), request.amount, "INR", "created");
+        orderLookupService.put(order);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(Order.created(order, Instant.now()));
     }
 
     // =========================
-    // PUBLIC ORDER FETCH
+    // CREATE ORDERS (BATCH)
     // =========================
-    @GetMapping("/{orderId}/public")
-    public ResponseEntity<?> getPublicOrder(@PathVariable String orderId) {
+    // Every item is validated first; the valid ones are inserted as one JDBC
+    // batch in one transaction (the driver rewrites it into multi-row
+    // INSERTs). Results are per item, in request order: 201 if all were
+    // created, 207 if only some were, 400 if none were. Only validation
+    // fails per item: the insert is all-or-nothing, so if it fails no order
+    // is created and the whole call fails.
+    @PostMapping("/batch")
+    public ResponseEntity<?> createOrders(
+            @RequestBody BatchOrderRequest request,
+            HttpServletRequest httpRequest
+    ) {
 
-        var rows = jdbcTemplate.queryForList(
-                "SELECT id, amount, currency, status FROM orders WHERE id = ?",
-                orderId
-        );
-
-        if (rows.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
-                    Map.of("error", Map.of(
-                            "code", "NOT_FOUND_ERROR",
-                            "description", "Order not found"
-                    ))
-            );
+        Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
+
+        if (merchant == null) {
+            return ErrorResponse.UNAUTHORIZED;
         }
 
-        var row = rows.get(0);
+        if (request.orders == null || request.orders.isEmpty()) {
+            return ResponseEntity.badRequest().body(ErrorResponse.badRequest("orders must not be empty"));
+        }
 
-        return ResponseEntity.ok(
-                Map.of(
-                        "id", row.get("id"),
-                        "amount", row.get("amount"),
-                        "currency", row.get("currency"),
-                        "status", row.get("status")
-                )
-        );
+        if (request.orders.size() > batchMaxSize) {
+            return ResponseEntity.badRequest().body(
+                    ErrorResponse.badRequest("At most " + batchMaxSize + " orders per batch"));
+        }
+
+        Instant now = Instant.now();
+        List<BatchItem> results = new ArrayList<>(request.orders.size());
+        List<OrderSnapshot> valid = new ArrayList<>(request.orders.size());
+
+        for (int i = 0; i < request.orders.size(); i++) {
+            OrderRequest item = request.orders.get(i);
+
+            if (item == null || item.amount == null || item.amount < 100) {
+                results.add(new BatchItem(i, HttpStatus.BAD_REQUEST.value(), null,
+                        ErrorResponse.badRequest("amount must be at least 100").get("error")));
+            } else {
+                OrderSnapshot order = new OrderSnapshot(
+                        idGenerator.next("order_"), merchant.getId(), item.amount, "INR", "created");
+                valid.add(order);
+                results.add(new BatchItem(i, HttpStatus.CREATED.value(), Order.created(order, now), null));
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            transactionTemplate.executeWithoutResult(tx ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, valid, valid.size(), (ps, order) -> {
+                        ps.setString(1, order.id());
+                        ps.setObject(2, order.merchantId());
+                        ps.setInt(3, order.amount());
+                    }));
+
+            valid.forEach(orderLookupService::put);
+        }
+
+        int failed = results.size() - valid.size();
+        HttpStatus status = failed == 0 ? HttpStatus.CREATED
+                : valid.isEmpty() ? HttpStatus.BAD_REQUEST
+                : HttpStatus.MULTI_STATUS;
+
+        return ResponseEntity.status(status).body(new BatchResult(valid.size(), failed, results));
     }
 
     // =========================
-    // ID GENERATOR
+    // LIST ORDERS
     // =========================
-    private String generateId(String prefix) {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        StringBuilder sb = new StringBuilder(prefix);
-        for (int i = 0; i < 16; i++) {
-            sb.append(chars.charAt(random.nextInt(chars.length())));
+    @GetMapping
+    public ResponseEntity<?> listOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest httpRequest
+    ) {
+
+        Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
+
+        if (merchant == null) {
+            return ErrorResponse.UNAUTHORIZED;
+        }
+
+        PageCursor after;
+        try {
+            after = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ErrorResponse.badRequest("Invalid cursor"));
+        }
+
+        StringBuilder sql = new StringBuilder("""
+            SELECT id, amount, currency, receipt, status, created_at
+            FROM orders
+            WHERE merchant_id = ?
+        """);
+        List<Object> args = new ArrayList<>(List.of(merchant.getId()));
+
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status);
+        }
+
+        return ResponseEntity.ok(KeysetPagination.page(readJdbcTemplate, sql.toString(), args, after,
+                PageCursor.limit(limit), Order.LIST_ROW_MAPPER));
+    }
+
+    // =========================
+    // PUBLIC ORDER FETCH
+    // =========================
+    @GetMapping("/{orderId}/public")
+    public ResponseEntity<?> getPublicOrder(@PathVariable String orderId) {
+
+        OrderSnapshot order = orderLookupService.find(orderId);
+
+        if (order == null) {
+            return ErrorResponse.ORDER_NOT_FOUND;
         }
-        return sb.toString();
+
+        return ResponseEntity.ok(Order.forCheckout(order));
     }
 
     static class OrderRequest {
         public Integer amount;
     }
+
+    static class BatchOrderRequest {
+        public List<OrderRequest> orders;
+    }
+
+    record BatchResult(int created, int failed, List<BatchItem> items) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record BatchItem(int index, int status, Order order, Object error) {}
 }
@@ -1,214 +1,314 @@
 package com.gateway.controllers;
 
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.gateway.acquirer.AcquirerRequest;
+import com.gateway.config.ReadRoutingDataSource;
 import com.gateway.models.Merchant;
+import com.gateway.models.Payment;
+import com.gateway.models.PaymentStatus;
+import com.gateway.services.IdGenerator;
+import com.gateway.services.IdempotencyService;
+import com.gateway.services.PaymentInserter;
+import com.gateway.services.PaymentInserter.Created;
+import com.gateway.services.PaymentMetrics;
+import com.gateway.services.PaymentMetrics.Flow;
+import com.gateway.services.PaymentMetrics.Stage;
+import com.gateway.services.PaymentProcessor;
+import com.gateway.services.PaymentViewCache;
+import com.gateway.util.CardValidationResult;
+import com.gateway.util.CreatedAtRange;
+import com.gateway.util.ErrorResponse;
+import com.gateway.util.KeysetPagination;
+import com.gateway.util.PageCursor;
+import com.gateway.util.PaymentValidationUtil;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/payments")
 public class PaymentController {
 
     private final JdbcTemplate jdbcTemplate;
-    private final Random random = new Random();
-
-    public PaymentController(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate readJdbcTemplate;
+    private final ReadRoutingDataSource readDataSource;
+    private final PaymentProcessor paymentProcessor;
+    private final PaymentInserter paymentInserter;
+    private final IdGenerator idGenerator;
+    private final IdempotencyService idempotencyService;
+    private final PaymentViewCache paymentViews;
+    private final PaymentMetrics metrics;
+    private final int statusBatchMaxSize;
+
+    public PaymentController(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("readJdbcTemplate") JdbcTemplate readJdbcTemplate,
+            ReadRoutingDataSource readDataSource,
+            PaymentProcessor paymentProcessor,
+            PaymentInserter paymentInserter,
+            IdGenerator idGenerator,
+            IdempotencyService idempotencyService,
+            PaymentViewCache paymentViews,
+            PaymentMetrics metrics,
+            @Value("${gateway.payments.status-batch-max-size:500}") int statusBatchMaxSize
+    ) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+        this.readDataSource = readDataSource;
+        this.paymentProcessor = paymentProcessor;
+        this.paymentInserter = paymentInserter;
+        this.idGenerator = idGenerator;
+        this.idempotencyService = idempotencyService;
+        this.paymentViews = paymentViews;
+        this.metrics = metrics;
+        this.statusBatchMaxSize = statusBatchMaxSize;
     }
 
     @PostMapping
     public ResponseEntity<?> createPayment(
             @RequestBody PaymentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             HttpServletRequest httpRequest
     ) {
 
         Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
 
         if (merchant == null) {
-            return ResponseEntity.status(401).body(
-                    Map.of("error", Map.of(
-                            "code", "AUTHENTICATION_ERROR",
-                            "description", "Invalid API credentials"
-                    ))
-            );
+            return ErrorResponse.UNAUTHORIZED;
         }
 
-        var orders = jdbcTemplate.queryForList(
-                "SELECT amount, currency FROM orders WHERE id = ? AND merchant_id = ?",
-                request.order_id, merchant.getId()
-        );
+        return idempotencyService.execute(merchant.getId().toString(), idempotencyKey, request,
+                () -> create(request, merchant));
+    }
+
+    private ResponseEntity<?> create(PaymentRequest request, Merchant merchant) {
+
+        Flow flow = Flow.of(PaymentMetrics.MERCHANT_API, request.method);
+
+        boolean upi = "upi".equals(request.method);
+        CardValidationResult card = "card".equals(request.method) && request.card != null
+                ? PaymentValidationUtil.validateCard(
+                        request.card.number, request.card.expiry_month, request.card.expiry_year, request.card.cvv)
+                : null;
+
+        if (upi) {
+            if (!PaymentValidationUtil.isValidVpa(request.vpa)) {
+                return ErrorResponse.INVALID_VPA;
+            }
+        } else if ("card".equals(request.method)) {
+            if (card == null || !card.valid()) {
+                return ErrorResponse.cardError(card);
+            }
+        } else {
+            return ErrorResponse.INVALID_PAYMENT_METHOD;
+        }
 
-        if (orders.isEmpty()) {
-            return ResponseEntity.status(404).body(
-                    Map.of("error", Map.of(
-                            "code", "NOT_FOUND_ERROR",
-                            "description", "Order not found"
-                    ))
-            );
+        if (paymentProcessor.isSaturated()) {
+            return ErrorResponse.AT_CAPACITY;
         }
 
-        int amount = (int) orders.get(0).get("amount");
-        String currency = orders.get(0).get("currency").toString();
+        String paymentId = idGenerator.next("pay_");
 
-        String paymentId = generateId("pay_");
+        // One round trip: amount and currency come from the merchant's order
+        Created created = metrics.time(Stage.INSERT, flow, () -> paymentInserter.insert(
+                paymentId, request.order_id, merchant.getId(), upi ? "upi" : "card",
+                upi ? request.vpa : null, upi ? null : card.network(), upi ? null : card.last4()),
+                inserted -> inserted != null ? "success" : "order_not_found");
 
-        if ("upi".equals(request.method)) {
+        if (created == null) {
+            return ErrorResponse.ORDER_NOT_FOUND;
+        }
 
-            if (request.vpa == null || !isValidVpa(request.vpa)) {
-                return badRequest("INVALID_VPA", "Invalid VPA format");
-            }
+        Payment payment = created.payment();
+        paymentProcessor.process(new AcquirerRequest(paymentId, merchant.getId(), payment.amount(),
+                payment.currency(), payment.method(), payment.cardNetwork()), flow);
 
-            jdbcTemplate.update("""
-                INSERT INTO payments
-                (id, order_id, merchant_id, amount, currency, method, status, vpa, created_at, updated_at)
-                VALUES (?, ?, ?, ?, ?, 'upi', 'processing', ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-            """, paymentId, request.order_id, merchant.getId(), amount, currency, request.vpa);
+        return ResponseEntity.status(HttpStatus.CREATED).body(payment);
+    }
 
-            processPayment(paymentId, true);
+    // =========================
+    // LIST PAYMENTS
+    // =========================
+    @GetMapping
+    public ResponseEntity<?> listPayments(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String method,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest httpRequest
+    ) {
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(
-                    Map.of(
-                            "id", paymentId,
-                            "order_id", request.order_id,
-                            "amount", amount,
-                            "currency", currency,
-                            "method", "upi",
-                            "vpa", request.vpa,
-                            "status", "processing",
-                            "created_at", Instant.now().toString()
-                    )
-            );
+        Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
+
+        if (merchant == null) {
+            return ErrorResponse.UNAUTHORIZED;
         }
 
-        if ("card".equals(request.method)) {
+        PageCursor after;
+        try {
+            after = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ErrorResponse.badRequest("Invalid cursor"));
+        }
 
-            if (request.card == null || !isValidCard(request.card)) {
-                return badRequest("INVALID_CARD", "Card validation failed");
-            }
+        StringBuilder sql = new StringBuilder("SELECT " + Payment.COLUMNS + " FROM payments WHERE merchant_id = ?");
+        List<Object> args = new ArrayList<>(List.of(merchant.getId()));
 
-            String network = detectNetwork(request.card.number);
-            String last4 = request.card.number.substring(request.card.number.length() - 4);
-
-            jdbcTemplate.update("""
-                INSERT INTO payments
-                (id, order_id, merchant_id, amount, currency, method, status,
-                 card_network, card_last4, created_at, updated_at)
-                VALUES (?, ?, ?, ?, ?, 'card', 'processing', ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-            """, paymentId, request.order_id, merchant.getId(), amount, currency, network, last4);
-
-            processPayment(paymentId, false);
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(
-                    Map.of(
-                            "id", paymentId,
-                            "order_id", request.order_id,
-                            "amount", amount,
-                            "currency", currency,
-                            "method", "card",
-                            "card_network", network,
-                            "card_last4", last4,
-                            "status", "processing",
-                            "created_at", Instant.now().toString()
-                    )
-            );
-        }
-
-        return badRequest("BAD_REQUEST_ERROR", "Invalid payment method");
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status);
+        }
+        if (method != null) {
+            sql.append(" AND method = ?");
+            args.add(method);
+        }
+
+        return ResponseEntity.ok(KeysetPagination.page(
+                readJdbcTemplate, sql.toString(), args, after, PageCursor.limit(limit), Payment.ROW_MAPPER));
     }
 
-    private void processPayment(String paymentId, boolean upi) {
+    // =========================
+    // FETCH PAYMENT
+    // =========================
+    // ETag is the status; Spring answers If-None-Match with 304 for us.
+    // Finished payments are served from PaymentViewCache as ready bytes.
+    @GetMapping("/{paymentId}")
+    public ResponseEntity<?> getPayment(@PathVariable String paymentId, HttpServletRequest httpRequest) {
 
-        boolean testMode = Boolean.parseBoolean(
-                System.getenv().getOrDefault("TEST_MODE", "false")
-        );
+        Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
 
-        boolean forcedSuccess = Boolean.parseBoolean(
-                System.getenv().getOrDefault("TEST_PAYMENT_SUCCESS", "true")
-        );
+        if (merchant == null) {
+            return ErrorResponse.UNAUTHORIZED;
+        }
 
-        int delay = Integer.parseInt(
-                System.getenv().getOrDefault("TEST_PROCESSING_DELAY", "1000")
-        );
+        PaymentViewCache.View cached = paymentViews.find(paymentId, merchant.getId());
+        if (cached != null) {
+            return cachedView(cached);
+        }
 
-        try {
-            Thread.sleep(testMode ? delay : (upi ? 6000 : 8000));
-        } catch (InterruptedException ignored) {}
-
-        boolean success = testMode
-                ? forcedSuccess
-                : (upi ? random.nextInt(10) < 9 : random.nextInt(100) < 95);
-
-        if (success) {
-            jdbcTemplate.update(
-                    "UPDATE payments SET status='success', updated_at=CURRENT_TIMESTAMP WHERE id=?",
-                    paymentId
-            );
-        } else {
-            jdbcTemplate.update("""
-                UPDATE payments
-                SET status='failed',
-                    error_code='PAYMENT_FAILED',
-                    error_description='Bank declined transaction',
-                    updated_at=CURRENT_TIMESTAMP
-                WHERE id=?
-            """, paymentId);
+        String sql = "SELECT " + Payment.COLUMNS + " FROM payments"
+                + " WHERE id = ? AND created_at >= ? AND created_at < ? AND merchant_id = ?";
+        CreatedAtRange createdAt = CreatedAtRange.of(paymentId);
+        List<Payment> rows = readJdbcTemplate.query(sql, Payment.ROW_MAPPER,
+                paymentId, createdAt.from(), createdAt.to(), merchant.getId());
+
+        // A replica may not have a payment created moments ago
+        if (rows.isEmpty() && readDataSource.routesToReplica()) {
+            rows = jdbcTemplate.query(sql, Payment.ROW_MAPPER,
+                    paymentId, createdAt.from(), createdAt.to(), merchant.getId());
         }
-    }
 
-    private boolean isValidVpa(String vpa) {
-        return Pattern.matches("^[a-zA-Z0-9._-]+@[a-zA-Z0-9]+$", vpa);
-    }
+        // An id from before the time prefix may have decoded to a wrong time
+        if (rows.isEmpty() && createdAt.bounded()) {
+            rows = readJdbcTemplate.query(sql, Payment.ROW_MAPPER, paymentId,
+                    CreatedAtRange.UNBOUNDED.from(), CreatedAtRange.UNBOUNDED.to(), merchant.getId());
+        }
 
-    private boolean isValidCard(Card card) {
-        return card.number != null && luhn(card.number)
-                && card.expiry_month != null
-                && card.expiry_year != null
-                && card.cvv != null;
+        if (rows.isEmpty()) {
+            return ErrorResponse.PAYMENT_NOT_FOUND;
+        }
+
+        Payment payment = rows.get(0);
+
+        if (PaymentViewCache.isTerminal(payment.status())) {
+            return cachedView(paymentViews.putTerminal(merchant.getId(), payment));
+        }
+
+        return ResponseEntity.ok().eTag(PaymentViewCache.etag(payment.status())).body(payment);
     }
 
-    private boolean luhn(String number) {
-        int sum = 0;
-        boolean alt = false;
-        for (int i = number.length() - 1; i >= 0; i--) {
-            int n = number.charAt(i) - '0';
-            if (alt) {
-                n *= 2;
-                if (n > 9) n -= 9;
+    // =========================
+    // BULK STATUS LOOKUP
+    // =========================
+    // One query for up to status-batch-max-size IDs; IDs that are unknown or
+    // belong to another merchant are listed under not_found
+    @PostMapping("/status:batch")
+    public ResponseEntity<?> getStatuses(@RequestBody StatusBatchRequest request, HttpServletRequest httpRequest) {
+
+        Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
+
+        if (merchant == null) {
+            return ErrorResponse.UNAUTHORIZED;
+        }
+
+        if (request.ids == null || request.ids.isEmpty() || request.ids.contains(null)) {
+            return ResponseEntity.badRequest().body(ErrorResponse.badRequest("ids must be a non-empty list of payment IDs"));
+        }
+
+        Set<String> ids = new LinkedHashSet<>(request.ids);
+
+        if (ids.size() > statusBatchMaxSize) {
+            return ResponseEntity.badRequest().body(
+                    ErrorResponse.badRequest("At most " + statusBatchMaxSize + " payment IDs per request"));
+        }
+
+        Map<String, PaymentStatus> found = new LinkedHashMap<>();
+        CreatedAtRange createdAt = CreatedAtRange.covering(ids);
+        readStatuses(readJdbcTemplate, ids, createdAt, merchant.getId(), found);
+
+        // A replica may not have payments created moments ago
+        if (found.size() < ids.size() && readDataSource.routesToReplica()) {
+            readStatuses(jdbcTemplate, missing(ids, found), createdAt, merchant.getId(), found);
+        }
+
+        // Ids from before the time prefix may have decoded to a wrong time
+        if (found.size() < ids.size() && createdAt.bounded()) {
+            readStatuses(readJdbcTemplate, missing(ids, found), CreatedAtRange.UNBOUNDED, merchant.getId(), found);
+        }
+
+        Map<String, PaymentStatus> payments = new LinkedHashMap<>();
+        List<String> notFound = new ArrayList<>();
+        for (String id : ids) {
+            PaymentStatus status = found.get(id);
+            if (status != null) {
+                payments.put(id, status.withoutId());
+            } else {
+                notFound.add(id);
             }
-            sum += n;
-            alt = !alt;
         }
-        return sum % 10 == 0;
+
+        return ResponseEntity.ok(new StatusBatchResult(payments, notFound));
     }
 
-    private String detectNetwork(String number) {
-        if (number.startsWith("4")) return "visa";
-        if (number.startsWith("5")) return "mastercard";
-        if (number.startsWith("34") || number.startsWith("37")) return "amex";
-        if (number.startsWith("6")) return "rupay";
-        return "unknown";
+    private static List<String> missing(Set<String> ids, Map<String, PaymentStatus> found) {
+        return ids.stream().filter(id -> !found.containsKey(id)).toList();
     }
 
-    private String generateId(String prefix) {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        StringBuilder sb = new StringBuilder(prefix);
-        for (int i = 0; i < 16; i++) {
-            sb.append(chars.charAt(random.nextInt(chars.length())));
-        }
-        return sb.toString();
+    private static void readStatuses(JdbcTemplate source, Collection<String> ids, CreatedAtRange createdAt,
+                                     UUID merchantId, Map<String, PaymentStatus> into) {
+        source.query(
+                "SELECT id, status, error_code, error_description FROM payments"
+                        + " WHERE id = ANY(?) AND created_at >= ? AND created_at < ? AND merchant_id = ?",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("varchar", ids.toArray()));
+                    ps.setTimestamp(2, createdAt.from());
+                    ps.setTimestamp(3, createdAt.to());
+                    ps.setObject(4, merchantId);
+                },
+                PaymentStatus.ROW_MAPPER
+        ).forEach(status -> into.put(status.id(), status));
     }
 
-    private ResponseEntity<?> badRequest(String code, String msg) {
-        return ResponseEntity.badRequest().body(
-                Map.of("error", Map.of("code", code, "description", msg))
-        );
+    private ResponseEntity<?> cachedView(PaymentViewCache.View view) {
+        return ResponseEntity.ok()
+                .eTag(view.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(view.json());
     }
 
     static class PaymentRequest {
@@ -218,6 +318,13 @@ public class PaymentController {
         public Card card;
     }
 
+    static class StatusBatchRequest {
+        public List<String> ids;
+    }
+
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    record StatusBatchResult(Map<String, PaymentStatus> payments, List<String> notFound) {}
+
     static class Card {
         public String number;
         public String expiry_month;
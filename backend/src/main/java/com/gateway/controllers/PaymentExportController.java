@@ -0,0 +1,102 @@
+package com.gateway.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gateway.models.Merchant;
+import com.gateway.services.PaymentExportService;
+import com.gateway.services.PaymentExportService.Format;
+import com.gateway.util.ErrorResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/payments/export")
+public class PaymentExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentExportController.class);
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final PaymentExportService exportService;
+    private final ObjectMapper objectMapper;
+
+    public PaymentExportController(PaymentExportService exportService, ObjectMapper objectMapper) {
+        this.exportService = exportService;
+        this.objectMapper = objectMapper;
+    }
+
+    // =========================
+    // RECONCILIATION EXPORT
+    // =========================
+    // from and to are inclusive calendar days
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest httpRequest
+    ) {
+
+        Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
+
+        if (merchant == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(ErrorResponse.AUTH_ERROR_JSON));
+        }
+
+        if (to.isBefore(from)) {
+            return error(HttpStatus.BAD_REQUEST, ErrorResponse.badRequest("to must not be before from"));
+        }
+
+        Format exportFormat;
+        if ("ndjson".equalsIgnoreCase(format)) {
+            exportFormat = Format.NDJSON;
+        } else if ("csv".equalsIgnoreCase(format)) {
+            exportFormat = Format.CSV;
+        } else {
+            return error(HttpStatus.BAD_REQUEST, ErrorResponse.badRequest("format must be ndjson or csv"));
+        }
+
+        UUID merchantId = merchant.getId();
+        String filename = "payments-" + from + "-" + to + (exportFormat == Format.CSV ? ".csv" : ".ndjson");
+
+        StreamingResponseBody body = out -> {
+            try {
+                exportService.export(merchantId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), exportFormat, out);
+            } catch (IOException e) {
+                // Usually the client going away mid-download
+                log.debug("Export for merchant {} aborted: {}", merchantId, e.toString());
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat == Format.CSV ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    // Streaming endpoints must declare StreamingResponseBody, so errors are streamed too
+    private ResponseEntity<StreamingResponseBody> error(HttpStatus status, Map<String, Object> body) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, body));
+    }
+}
@@ -0,0 +1,49 @@
+package com.gateway.controllers;
+
+import com.gateway.models.Merchant;
+import com.gateway.models.MerchantStats;
+import com.gateway.services.MerchantStatsService;
+import com.gateway.util.ErrorResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/stats")
+public class StatsController {
+
+    private final MerchantStatsService merchantStats;
+
+    public StatsController(MerchantStatsService merchantStats) {
+        this.merchantStats = merchantStats;
+    }
+
+    // =========================
+    // DASHBOARD STATS
+    // =========================
+    @GetMapping
+    public ResponseEntity<?> getStats(HttpServletRequest httpRequest) {
+
+        Merchant merchant = (Merchant) httpRequest.getAttribute("merchant");
+
+        if (merchant == null) {
+            return ErrorResponse.UNAUTHORIZED;
+        }
+
+        MerchantStats stats = merchantStats.get(merchant.getId());
+
+        return ResponseEntity.ok(
+                Map.of(
+                        "total_transactions", stats.totalTransactions(),
+                        "successful_transactions", stats.successfulTransactions(),
+                        "failed_transactions", stats.failedTransactions(),
+                        "total_amount", stats.successfulAmount(),
+                        "success_rate", stats.successRate()
+                )
+        );
+    }
+}
@@ -1,5 +1,8 @@
 package com.gateway.controllers;
 
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -7,21 +10,24 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 public class TestController {
 
     private final JdbcTemplate jdbcTemplate;
 
-    public TestController(JdbcTemplate jdbcTemplate) {
+    public TestController(@Qualifier("readJdbcTemplate") JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
     @GetMapping("/api/v1/test/merchant")
     public ResponseEntity<?> getTestMerchant() {
 
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(
+        List<TestMerchant> result = jdbcTemplate.query(
                 "SELECT id, email, api_key FROM merchants WHERE email = ?",
+                (rs, row) -> new TestMerchant(
+                        rs.getObject("id", UUID.class), rs.getString("email"), rs.getString("api_key"), true),
                 "test@example.com"
         );
 
@@ -34,15 +40,9 @@ public class TestController {
             );
         }
 
-        Map<String, Object> row = result.get(0);
-
-        return ResponseEntity.ok(
-                Map.of(
-                        "id", row.get("id"),
-                        "email", row.get("email"),
-                        "api_key", row.get("api_key"),
-                        "seeded", true
-                )
-        );
+        return ResponseEntity.ok(result.get(0));
     }
+
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    record TestMerchant(UUID id, String email, String apiKey, boolean seeded) {}
 }
@@ -1,11 +1,13 @@
 package com.gateway.models;
 
+import com.gateway.services.MerchantCacheInvalidator;
 import jakarta.persistence.*;
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
 @Table(name = "merchants")
+@EntityListeners(MerchantCacheInvalidator.class)
 public class Merchant {
 
     @Id
@@ -24,6 +26,12 @@ public class Merchant {
     @Column(nullable = false)
     private String apiSecret;
 
+    private String webhookUrl;
+
+    // null means the gateway default
+    private Integer rateLimitPerSecond;
+    private Integer rateLimitBurst;
+
     private boolean isActive = true;
 
     private Instant createdAt;
@@ -56,6 +64,15 @@ public class Merchant {
     public String getApiSecret() { return apiSecret; }
     public void setApiSecret(String apiSecret) { this.apiSecret = apiSecret; }
 
+    public String getWebhookUrl() { return webhookUrl; }
+    public void setWebhookUrl(String webhookUrl) { this.webhookUrl = webhookUrl; }
+
+    public Integer getRateLimitPerSecond() { return rateLimitPerSecond; }
+    public void setRateLimitPerSecond(Integer rateLimitPerSecond) { this.rateLimitPerSecond = rateLimitPerSecond; }
+
+    public Integer getRateLimitBurst() { return rateLimitBurst; }
+    public void setRateLimitBurst(Integer rateLimitBurst) { this.rateLimitBurst = rateLimitBurst; }
+
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
 }
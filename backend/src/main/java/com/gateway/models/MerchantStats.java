@@ -0,0 +1,48 @@
+package com.gateway.models;
+
+/**
+ * Running payment totals for one merchant. Amounts are in the smallest
+ * currency unit, like the payments table.
+ */
+public record MerchantStats(
+        long totalTransactions,
+        long successfulTransactions,
+        long failedTransactions,
+        long successfulAmount
+) {
+
+    public static final MerchantStats EMPTY = new MerchantStats(0, 0, 0, 0);
+
+    public MerchantStats plus(MerchantStats other) {
+        return new MerchantStats(
+                totalTransactions + other.totalTransactions,
+                successfulTransactions + other.successfulTransactions,
+                failedTransactions + other.failedTransactions,
+                successfulAmount + other.successfulAmount
+        );
+    }
+
+    public MerchantStats minus(MerchantStats other) {
+        return plus(new MerchantStats(
+                -other.totalTransactions,
+                -other.successfulTransactions,
+                -other.failedTransactions,
+                -other.successfulAmount
+        ));
+    }
+
+    public boolean isEmpty() {
+        return equals(EMPTY);
+    }
+
+    /**
+     * Percentage of finished payments (success or failed) that succeeded.
+     */
+    public double successRate() {
+        long finished = successfulTransactions + failedTransactions;
+        if (finished == 0) {
+            return 0;
+        }
+        return Math.round(successfulTransactions * 10000.0 / finished) / 100.0;
+    }
+}
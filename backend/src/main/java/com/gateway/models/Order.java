@@ -0,0 +1,50 @@
+package com.gateway.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An order as returned by the API; absent fields are left out of the JSON.
+ */
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Order(
+        String id,
+        UUID merchantId,
+        int amount,
+        String currency,
+        String receipt,
+        String status,
+        Instant createdAt
+) {
+
+    /**
+     * For listings: no merchant_id, the caller is the merchant.
+     */
+    public static final RowMapper<Order> LIST_ROW_MAPPER = (rs, row) -> new Order(
+            rs.getString("id"),
+            null,
+            rs.getInt("amount"),
+            rs.getString("currency"),
+            rs.getString("receipt"),
+            rs.getString("status"),
+            rs.getTimestamp("created_at").toInstant()
+    );
+
+    public static Order created(OrderSnapshot order, Instant createdAt) {
+        return new Order(order.id(), order.merchantId(), order.amount(), order.currency(), null,
+                order.status(), createdAt);
+    }
+
+    /**
+     * What the checkout page may see of an order.
+     */
+    public static Order forCheckout(OrderSnapshot order) {
+        return new Order(order.id(), null, order.amount(), order.currency(), null, order.status(), null);
+    }
+}
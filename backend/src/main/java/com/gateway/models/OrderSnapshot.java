@@ -0,0 +1,15 @@
+package com.gateway.models;
+
+import java.util.UUID;
+
+/**
+ * Immutable copy of the order columns needed to fetch an order or take a
+ * payment against it.
+ */
+public record OrderSnapshot(
+        String id,
+        UUID merchantId,
+        int amount,
+        String currency,
+        String status
+) {}
@@ -0,0 +1,68 @@
+package com.gateway.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * A payment as returned by the API. Absent fields (vpa for card payments,
+ * error_* unless failed, ...) are left out of the JSON.
+ */
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Payment(
+        String id,
+        String orderId,
+        int amount,
+        String currency,
+        String method,
+        String vpa,
+        String cardNetwork,
+        String cardLast4,
+        String status,
+        String errorCode,
+        String errorDescription,
+        Instant createdAt,
+        Instant updatedAt
+) {
+
+    /**
+     * Select list matching ROW_MAPPER.
+     */
+    public static final String COLUMNS = """
+            id, order_id, amount, currency, method, status, vpa, card_network, card_last4,
+            error_code, error_description, created_at, updated_at
+            """;
+
+    public static final RowMapper<Payment> ROW_MAPPER = (rs, row) -> new Payment(
+            rs.getString("id"),
+            rs.getString("order_id"),
+            rs.getInt("amount"),
+            rs.getString("currency"),
+            rs.getString("method"),
+            rs.getString("vpa"),
+            rs.getString("card_network"),
+            rs.getString("card_last4"),
+            rs.getString("status"),
+            rs.getString("error_code"),
+            rs.getString("error_description"),
+            instant(rs.getTimestamp("created_at")),
+            instant(rs.getTimestamp("updated_at"))
+    );
+
+    /**
+     * What the checkout page is told about a payment it just created.
+     */
+    public Payment forCheckout() {
+        return new Payment(id, null, amount, currency, method, null, cardNetwork, cardLast4,
+                status, errorCode, errorDescription, createdAt, null);
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+}
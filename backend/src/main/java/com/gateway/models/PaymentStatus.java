@@ -0,0 +1,37 @@
+package com.gateway.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Just the status of a payment, for the checkout status stream and bulk
+ * status lookups. id is left out of the JSON where the caller already keys
+ * by it.
+ */
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaymentStatus(
+        String id,
+        String status,
+        String errorCode,
+        String errorDescription
+) {
+
+    public static final RowMapper<PaymentStatus> ROW_MAPPER = (rs, row) -> new PaymentStatus(
+            rs.getString("id"),
+            rs.getString("status"),
+            rs.getString("error_code"),
+            rs.getString("error_description")
+    );
+
+    public static PaymentStatus of(StatusTransition transition) {
+        return new PaymentStatus(transition.paymentId(), transition.status(),
+                transition.errorCode(), transition.errorDescription());
+    }
+
+    public PaymentStatus withoutId() {
+        return new PaymentStatus(null, status, errorCode, errorDescription);
+    }
+}
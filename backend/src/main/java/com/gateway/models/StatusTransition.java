@@ -0,0 +1,26 @@
+package com.gateway.models;
+
+import java.util.UUID;
+
+/**
+ * Terminal status change of a payment, as written to the payments table.
+ * Published as an application event once the write has committed.
+ */
+public record StatusTransition(
+        String paymentId,
+        UUID merchantId,
+        int amount,
+        String status,
+        String errorCode,
+        String errorDescription
+) {
+
+    public static StatusTransition success(String paymentId, UUID merchantId, int amount) {
+        return new StatusTransition(paymentId, merchantId, amount, "success", null, null);
+    }
+
+    public static StatusTransition failed(String paymentId, UUID merchantId, int amount,
+                                          String errorCode, String errorDescription) {
+        return new StatusTransition(paymentId, merchantId, amount, "failed", errorCode, errorDescription);
+    }
+}
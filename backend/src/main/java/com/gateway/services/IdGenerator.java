@@ -0,0 +1,131 @@
+package com.gateway.services;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Generates order_/pay_ ids: the prefix followed by 16 base62 characters.
+ *
+ * Layout of the 16 characters, most significant first:
+ *   8  milliseconds since 2024-01-01 UTC
+ *   8  random, from a SecureRandom (about 47 bits)
+ *
+ * The alphabet is in ASCII order, so ids sort by creation time and new rows
+ * land at the right-hand edge of the primary key index instead of scattering
+ * across it. The time prefix is public information; the random part is what
+ * makes ids unguessable, which matters because an id is all a caller needs
+ * for /orders/{id}/public, /checkout/pay and the payment event stream: even
+ * knowing the millisecond, finding an id takes ~2^47 guesses. Two ids
+ * collide only if they share the millisecond and all 47 random bits, so ids
+ * are unique without coordination between nodes (the primary key would
+ * reject the rare collision).
+ *
+ * Each thread has its own SecureRandom and draws random bytes in blocks, so
+ * generating an id takes no lock. A new virtual thread pays for seeding its
+ * SecureRandom (~10us) on its first id.
+ */
+@Component
+public class IdGenerator {
+
+    private static final char[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int TIME_CHARS = 8;
+    private static final int RANDOM_CHARS = 8;
+    private static final int BLOCK_BYTES = 128;
+    // Clock skew between nodes
+    private static final long FUTURE_TOLERANCE_MILLIS = 60_000;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final ThreadLocal<RandomBlock> RANDOM = ThreadLocal.withInitial(RandomBlock::new);
+
+    public String next(String prefix) {
+        int p = prefix.length();
+        char[] id = new char[p + TIME_CHARS + RANDOM_CHARS];
+        prefix.getChars(0, p, id, 0);
+        encode(System.currentTimeMillis() - EPOCH_MILLIS, id, p, TIME_CHARS);
+        // 8 base62 digits of a random long; 62^8 is small next to 2^64, so
+        // the modulo bias is negligible
+        encodeUnsigned(RANDOM.get().nextLong(), id, p + TIME_CHARS, RANDOM_CHARS);
+        return new String(id);
+    }
+
+    /**
+     * The millisecond an id was generated in, or -1 if the id carries no
+     * usable time. Ids from before this layout are 16 random characters too;
+     * they decode to a time in the future for all but a tiny fraction, so a
+     * future time is treated as no time. Callers that bound a query with the
+     * result must still handle a miss on such an id.
+     */
+    public static long createdAtMillis(String id) {
+        int start = id.indexOf('_') + 1;
+        if (start == 0 || id.length() - start != TIME_CHARS + RANDOM_CHARS) {
+            return -1;
+        }
+        long millis = 0;
+        for (int i = start; i < start + TIME_CHARS; i++) {
+            int digit = digit(id.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            millis = millis * 62 + digit;
+        }
+        millis += EPOCH_MILLIS;
+        return millis > System.currentTimeMillis() + FUTURE_TOLERANCE_MILLIS ? -1 : millis;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'Z') return c - 'A' + 10;
+        if (c >= 'a' && c <= 'z') return c - 'a' + 36;
+        return -1;
+    }
+
+    private static void encode(long value, char[] out, int offset, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            out[i] = ALPHABET[(int) (value % 62)];
+            value /= 62;
+        }
+    }
+
+    private static void encodeUnsigned(long value, char[] out, int offset, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            out[i] = ALPHABET[(int) Long.remainderUnsigned(value, 62)];
+            value = Long.divideUnsigned(value, 62);
+        }
+    }
+
+    private static final class RandomBlock {
+
+        private final SecureRandom random = newRandom();
+        private final byte[] block = new byte[BLOCK_BYTES];
+        private int position = BLOCK_BYTES;
+
+        // Every byte of the block is used once
+        long nextLong() {
+            if (position == BLOCK_BYTES) {
+                random.nextBytes(block);
+                position = 0;
+            }
+            long value = (long) LONGS.get(block, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        private static SecureRandom newRandom() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.gateway.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gateway.util.ErrorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key handling for payment creation.
+ *
+ * The first request with a given key runs and its response is stored;
+ * repeats within the TTL get the stored response back instead of creating
+ * another payment. Completed responses are kept in memory and in the
+ * idempotency_keys table (so they survive restarts and are shared between
+ * nodes). A duplicate that arrives while the original is still running
+ * waits for it rather than running a second time. Reusing a key with a
+ * different request body is rejected.
+ *
+ * 5xx responses and exceptions are not stored, so the client can retry
+ * with the same key.
+ *
+ * While a request runs, its key is claimed for claim-lease only, and the
+ * row is kept for the TTL once the response is stored. If the node dies
+ * mid-request, the key can be used again after that short lease instead of
+ * answering 409 for a whole TTL. The lease must outlast a request that
+ * waits the full pool connection-timeout and then runs for as long as
+ * duplicates wait for it (wait-timeout); this is checked at startup.
+ *
+ * Each claim carries a random token, and storing the response or releasing
+ * the key only touches the row while it still holds that token. A request
+ * that overran its lease and lost the key to a retry does not overwrite or
+ * delete the retry's claim; its response is returned but not stored.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long REMOTE_POLL_MILLIS = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration claimLease;
+    private final Cache<String, StoredResponse> completed;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            @Value("${gateway.idempotency.ttl:24h}") Duration ttl,
+            @Value("${gateway.idempotency.wait-timeout:10s}") Duration waitTimeout,
+            @Value("${gateway.idempotency.claim-lease:60s}") Duration claimLease,
+            @Value("${gateway.idempotency.cache-max-size:100000}") long cacheMaxSize,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeoutMs
+    ) {
+        if (claimLease.compareTo(Duration.ofMillis(connectionTimeoutMs).plus(waitTimeout)) < 0) {
+            throw new IllegalStateException("gateway.idempotency.claim-lease (" + claimLease
+                    + ") must be at least the pool connection-timeout (" + connectionTimeoutMs
+                    + "ms) plus gateway.idempotency.wait-timeout (" + waitTimeout + ")");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.claimLease = claimLease;
+        this.completed = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
+
+    /**
+     * Runs action at most once per (scope, key). Without a key the action
+     * simply runs.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, "BAD_REQUEST_ERROR",
+                    "Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+
+        String cacheKey = scope + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse stored = completed.getIfPresent(cacheKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> original = inFlight.putIfAbsent(cacheKey, mine);
+        if (original != null) {
+            return awaitOriginal(original, requestHash);
+        }
+
+        try {
+            StoredResponse result = runOnce(scope, key, requestHash, action);
+            if (result == null) {
+                mine.cancel(false);
+                return inProgress();
+            }
+            mine.complete(result);
+            return result.replayed() ? replay(result, requestHash) : result.toResponse(false);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    // Returns null if another node holds the key and did not finish in time
+    private StoredResponse runOnce(String scope, String key, String requestHash, Supplier<ResponseEntity<?>> action) {
+        UUID token = UUID.randomUUID();
+        if (!claim(scope, key, requestHash, token)) {
+            StoredResponse existing = awaitRemote(scope, key);
+            if (existing != null) {
+                completed.put(scope + ":" + key, existing);
+            }
+            return existing;
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(scope, key, token);
+            throw e;
+        }
+
+        StoredResponse result = new StoredResponse(requestHash, response.getStatusCode().value(), serialize(response.getBody()), false);
+
+        if (response.getStatusCode().is5xxServerError()) {
+            release(scope, key, token);
+        } else {
+            int stored = jdbcTemplate.update("""
+                UPDATE idempotency_keys
+                SET status = 'completed', response_status = ?, response_body = ?,
+                    expires_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 second')
+                WHERE scope = ? AND idempotency_key = ? AND claim_token = ? AND status = 'in_progress'
+            """, result.status(), result.body(), ttl.toSeconds(), scope, key, token);
+            if (stored == 1) {
+                completed.put(scope + ":" + key, result.asReplay());
+            } else {
+                log.warn("Idempotency key {} in {} outlived its {} claim and was taken over; response not stored",
+                        key, scope, claimLease);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inserts the in-progress marker with token, leased for claimLease.
+     * Returns false if another request (on any node) already holds the key;
+     * expired rows, including claims whose holder never finished, are taken
+     * over.
+     */
+    private boolean claim(String scope, String key, String requestHash, UUID token) {
+        int inserted = jdbcTemplate.update("""
+            INSERT INTO idempotency_keys
+                (scope, idempotency_key, request_hash, status, claim_token, created_at, expires_at)
+            VALUES (?, ?, ?, 'in_progress', ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP + (? * INTERVAL '1 second'))
+            ON CONFLICT (scope, idempotency_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash,
+                    status = 'in_progress',
+                    claim_token = EXCLUDED.claim_token,
+                    response_status = NULL,
+                    response_body = NULL,
+                    created_at = EXCLUDED.created_at,
+                    expires_at = EXCLUDED.expires_at
+                WHERE idempotency_keys.expires_at < CURRENT_TIMESTAMP
+        """, scope, key, requestHash, token, claimLease.toSeconds());
+        return inserted == 1;
+    }
+
+    private void release(String scope, String key, UUID token) {
+        jdbcTemplate.update("""
+            DELETE FROM idempotency_keys
+            WHERE scope = ? AND idempotency_key = ? AND claim_token = ? AND status = 'in_progress'
+        """, scope, key, token);
+    }
+
+    /**
+     * The key is held by a request on another node (or one that has not
+     * finished yet); poll until it completes or the wait times out.
+     */
+    private StoredResponse awaitRemote(String scope, String key) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+
+        while (true) {
+            List<StoredResponse> rows = jdbcTemplate.query("""
+                SELECT request_hash, status, response_status, response_body
+                FROM idempotency_keys
+                WHERE scope = ? AND idempotency_key = ?
+            """, (rs, i) -> "completed".equals(rs.getString("status"))
+                    ? new StoredResponse(rs.getString("request_hash"), rs.getInt("response_status"), rs.getString("response_body"), true)
+                    : null, scope, key);
+
+            if (!rows.isEmpty() && rows.get(0) != null) {
+                return rows.get(0);
+            }
+            if (System.nanoTime() > deadline) {
+                return null;
+            }
+            try {
+                Thread.sleep(REMOTE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    private ResponseEntity<?> awaitOriginal(CompletableFuture<StoredResponse> original, String requestHash) {
+        try {
+            return replay(original.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS), requestHash);
+        } catch (Exception e) {
+            // The original failed or is taking too long; the client may retry
+            return inProgress();
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED",
+                    "Idempotency-Key was already used with a different request");
+        }
+        if (stored.status() >= 500) {
+            return inProgress();
+        }
+        return stored.toResponse(true);
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.idempotency.cleanup-interval-ms:600000}")
+    public void deleteExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < CURRENT_TIMESTAMP");
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String serialize(Object body) {
+        // Pre-serialized responses (see ErrorResponse) are JSON already
+        if (body instanceof byte[] json) {
+            return new String(json, StandardCharsets.UTF_8);
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    private static ResponseEntity<?> inProgress() {
+        return error(HttpStatus.CONFLICT, "IDEMPOTENCY_IN_PROGRESS",
+                "A request with this Idempotency-Key is still being processed");
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String code, String description) {
+        return ResponseEntity.status(status).body(ErrorResponse.custom(code, description));
+    }
+
+    private record StoredResponse(String requestHash, int status, String body, boolean replayed) {
+
+        StoredResponse asReplay() {
+            return new StoredResponse(requestHash, status, body, true);
+        }
+
+        ResponseEntity<?> toResponse(boolean replay) {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON);
+            if (replay) {
+                builder.header("Idempotent-Replayed", "true");
+            }
+            return builder.body(body);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that keeps MerchantCredentialCache in step with
+ * writes to merchants (updates, deactivation, key rotation, deletes).
+ *
+ * The cache is resolved lazily because Hibernate builds its listeners while
+ * the repository the cache depends on is still being created.
+ */
+@Component
+public class MerchantCacheInvalidator {
+
+    private final ObjectProvider<MerchantCredentialCache> cache;
+
+    public MerchantCacheInvalidator(ObjectProvider<MerchantCredentialCache> cache) {
+        this.cache = cache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onMerchantChanged(Merchant merchant) {
+        cache.ifAvailable(c -> c.invalidate(merchant));
+    }
+}
@@ -0,0 +1,103 @@
+package com.gateway.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gateway.models.Merchant;
+import com.gateway.repositories.MerchantRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+
+/**
+ * In-memory view of merchant credentials used by ApiKeyAuthFilter.
+ *
+ * Known keys are kept for the configured TTL, unknown keys are remembered
+ * for a shorter negative TTL so that bad credentials do not reach the
+ * database either. Both tiers are bounded by size.
+ */
+@Component
+public class MerchantCredentialCache {
+
+    private final MerchantRepository merchantRepository;
+    private final Cache<String, Credential> credentials;
+    private final Cache<String, Boolean> unknownKeys;
+
+    public MerchantCredentialCache(
+            MerchantRepository merchantRepository,
+            @Value("${gateway.auth-cache.ttl:5m}") Duration ttl,
+            @Value("${gateway.auth-cache.negative-ttl:30s}") Duration negativeTtl,
+            @Value("${gateway.auth-cache.max-size:10000}") long maxSize
+    ) {
+        this.merchantRepository = merchantRepository;
+        this.credentials = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+        this.unknownKeys = Caffeine.newBuilder()
+                .expireAfterWrite(negativeTtl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Returns the active merchant owning these credentials, or null.
+     */
+    public Merchant authenticate(String apiKey, String apiSecret) {
+        Credential credential = lookup(apiKey);
+
+        if (credential == null || !credential.merchant().isActive()) {
+            return null;
+        }
+
+        boolean secretMatches = MessageDigest.isEqual(
+                credential.secret(),
+                apiSecret.getBytes(StandardCharsets.UTF_8)
+        );
+
+        return secretMatches ? credential.merchant() : null;
+    }
+
+    /**
+     * Drops every cached entry for this merchant, including a negative entry
+     * for its current key (e.g. after the key was rotated in).
+     */
+    public void invalidate(Merchant merchant) {
+        credentials.asMap().values().removeIf(c -> c.merchant().getId().equals(merchant.getId()));
+
+        if (merchant.getApiKey() != null) {
+            credentials.invalidate(merchant.getApiKey());
+            unknownKeys.invalidate(merchant.getApiKey());
+        }
+    }
+
+    public void invalidateAll() {
+        credentials.invalidateAll();
+        unknownKeys.invalidateAll();
+    }
+
+    private Credential lookup(String apiKey) {
+        Credential cached = credentials.getIfPresent(apiKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (unknownKeys.getIfPresent(apiKey) != null) {
+            return null;
+        }
+
+        Credential loaded = credentials.get(apiKey, key -> merchantRepository.findByApiKey(key)
+                .map(m -> new Credential(m, m.getApiSecret().getBytes(StandardCharsets.UTF_8)))
+                .orElse(null));
+
+        if (loaded == null) {
+            unknownKeys.put(apiKey, Boolean.TRUE);
+        }
+
+        return loaded;
+    }
+
+    private record Credential(Merchant merchant, byte[] secret) {}
+}
@@ -0,0 +1,153 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-merchant token bucket, applied by ApiKeyAuthFilter right after a
+ * request authenticates.
+ *
+ * Each bucket is a single AtomicLong using GCRA (the "theoretical arrival
+ * time" form of a token bucket): a request is admitted with one CAS and no
+ * lock, refilling needs no timer, and idle merchants cost one map entry.
+ *
+ * Rate and burst come from the merchant's rate_limit_per_second and
+ * rate_limit_burst columns, or the configured defaults when those are null.
+ * Both must be at least 1: defaults below that fail startup, and a
+ * merchant's value below that is ignored with a warning (use is_active to
+ * block a merchant). Rejections are counted in gateway.ratelimit.throttled,
+ * tagged by merchant.
+ */
+@Component
+public class MerchantRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantRateLimiter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final boolean enabled;
+    private final int defaultPerSecond;
+    private final int defaultBurst;
+    private final Map<UUID, Bucket> buckets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MerchantRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${gateway.rate-limit.enabled:true}") boolean enabled,
+            @Value("${gateway.rate-limit.default-per-second:1000}") int defaultPerSecond,
+            @Value("${gateway.rate-limit.default-burst:2000}") int defaultBurst
+    ) {
+        this(meterRegistry, enabled, defaultPerSecond, defaultBurst, System::nanoTime);
+    }
+
+    MerchantRateLimiter(MeterRegistry meterRegistry, boolean enabled, int defaultPerSecond, int defaultBurst,
+                        LongSupplier nanoClock) {
+        if (defaultPerSecond < 1 || defaultBurst < 1) {
+            throw new IllegalStateException("gateway.rate-limit.default-per-second and default-burst must be"
+                    + " at least 1, got " + defaultPerSecond + " and " + defaultBurst);
+        }
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        this.enabled = enabled;
+        this.defaultPerSecond = defaultPerSecond;
+        this.defaultBurst = defaultBurst;
+    }
+
+    /**
+     * Takes one token for the merchant. Returns 0 if the request may
+     * proceed, otherwise how many nanoseconds until it would be admitted.
+     */
+    public long tryAcquire(Merchant merchant) {
+        if (!enabled) {
+            return 0;
+        }
+
+        int perSecond = isRate(merchant.getRateLimitPerSecond()) ? merchant.getRateLimitPerSecond() : defaultPerSecond;
+        int burst = isRate(merchant.getRateLimitBurst()) ? merchant.getRateLimitBurst() : defaultBurst;
+
+        Bucket bucket = buckets.get(merchant.getId());
+        if (bucket == null || bucket.perSecond != perSecond || bucket.burst != burst) {
+            // New merchant, or its limits changed
+            warnIfInvalid(merchant);
+            bucket = buckets.compute(merchant.getId(), (id, current) ->
+                    current != null && current.perSecond == perSecond && current.burst == burst
+                            ? current
+                            : new Bucket(perSecond, burst, nanoClock.getAsLong(), throttleCounter(id)));
+        }
+
+        long waitNanos = bucket.tryAcquire(nanoClock.getAsLong());
+        if (waitNanos > 0) {
+            bucket.throttled.increment();
+        }
+        return waitNanos;
+    }
+
+    private static boolean isRate(Integer configured) {
+        return configured != null && configured >= 1;
+    }
+
+    private void warnIfInvalid(Merchant merchant) {
+        if (merchant.getRateLimitPerSecond() != null && !isRate(merchant.getRateLimitPerSecond())
+                || merchant.getRateLimitBurst() != null && !isRate(merchant.getRateLimitBurst())) {
+            log.warn("Merchant {} has rate_limit_per_second = {}, rate_limit_burst = {}; values below 1 are"
+                            + " ignored and the defaults used", merchant.getId(),
+                    merchant.getRateLimitPerSecond(), merchant.getRateLimitBurst());
+        }
+    }
+
+    private Counter throttleCounter(UUID merchantId) {
+        return Counter.builder("gateway.ratelimit.throttled")
+                .description("Requests rejected by the per-merchant rate limit")
+                .tag("merchant", merchantId.toString())
+                .register(meterRegistry);
+    }
+
+    private static final class Bucket {
+        final int perSecond;
+        final int burst;
+        final long intervalNanos;
+        final long toleranceNanos;
+        final Counter throttled;
+
+        // Theoretical arrival time: when the bucket will be full again if
+        // no more requests come
+        final AtomicLong tat;
+
+        Bucket(int perSecond, int burst, long now, Counter throttled) {
+            this.perSecond = perSecond;
+            this.burst = burst;
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / perSecond;
+            this.toleranceNanos = intervalNanos * burst;
+            this.throttled = throttled;
+            this.tat = new AtomicLong(now);
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long allowedAt = next - toleranceNanos;
+
+                if (allowedAt > now) {
+                    return allowedAt - now;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
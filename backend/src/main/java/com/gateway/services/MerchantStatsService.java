@@ -0,0 +1,228 @@
+package com.gateway.services;
+
+import com.gateway.models.MerchantStats;
+import com.gateway.models.StatusTransition;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-merchant dashboard totals, maintained incrementally.
+ *
+ * Payments are counted when they are inserted and again when their final
+ * status is committed (the StatusTransition event from
+ * PaymentStatusWriter). Increments go to striped LongAdders, so reading
+ * stats never touches the payments table.
+ *
+ * Every checkpoint interval the increments collected since the last
+ * checkpoint are added to merchant_stats, and the totals are then reloaded
+ * from it. Because only deltas are written, several nodes can share the
+ * table; each node sees the others' increments after its next checkpoint.
+ * Increments not yet checkpointed are lost if the process dies; set
+ * gateway.stats.rebuild-on-startup to recount from payments once.
+ */
+@Service
+public class MerchantStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantStatsService.class);
+
+    private static final String ADD_SQL = """
+            INSERT INTO merchant_stats
+            (merchant_id, total_transactions, successful_transactions, failed_transactions,
+             successful_amount, updated_at)
+            VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+            ON CONFLICT (merchant_id) DO UPDATE SET
+                total_transactions = merchant_stats.total_transactions + EXCLUDED.total_transactions,
+                successful_transactions = merchant_stats.successful_transactions + EXCLUDED.successful_transactions,
+                failed_transactions = merchant_stats.failed_transactions + EXCLUDED.failed_transactions,
+                successful_amount = merchant_stats.successful_amount + EXCLUDED.successful_amount,
+                updated_at = CURRENT_TIMESTAMP
+            """;
+
+    private static final String REBUILD_SQL = """
+            INSERT INTO merchant_stats
+            (merchant_id, total_transactions, successful_transactions, failed_transactions,
+             successful_amount, updated_at)
+            SELECT merchant_id,
+                   COUNT(*),
+                   COUNT(*) FILTER (WHERE status = 'success'),
+                   COUNT(*) FILTER (WHERE status = 'failed'),
+                   COALESCE(SUM(amount) FILTER (WHERE status = 'success'), 0),
+                   CURRENT_TIMESTAMP
+            FROM payments
+            GROUP BY merchant_id
+            ON CONFLICT (merchant_id) DO UPDATE SET
+                total_transactions = EXCLUDED.total_transactions,
+                successful_transactions = EXCLUDED.successful_transactions,
+                failed_transactions = EXCLUDED.failed_transactions,
+                successful_amount = EXCLUDED.successful_amount,
+                updated_at = CURRENT_TIMESTAMP
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean rebuildOnStartup;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final Map<UUID, Counters> counters = new ConcurrentHashMap<>();
+
+    public MerchantStatsService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${gateway.stats.rebuild-on-startup:false}") boolean rebuildOnStartup
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @PostConstruct
+    void load() {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM merchant_stats", Integer.class);
+
+        // First start on an existing database, or an explicit recount
+        if (rebuildOnStartup || rows == null || rows == 0) {
+            int merchants = jdbcTemplate.update(REBUILD_SQL);
+            log.info("Rebuilt merchant stats from payments for {} merchants", merchants);
+        }
+        reloadTotals();
+    }
+
+    public void paymentCreated(UUID merchantId) {
+        counters(merchantId).total.increment();
+    }
+
+    @EventListener
+    public void onStatusChanged(StatusTransition transition) {
+        Counters c = counters(transition.merchantId());
+
+        if ("success".equals(transition.status())) {
+            c.successful.increment();
+            c.successfulAmount.add(transition.amount());
+        } else if ("failed".equals(transition.status())) {
+            c.failed.increment();
+        }
+    }
+
+    public MerchantStats get(UUID merchantId) {
+        Counters c = counters.get(merchantId);
+        return c == null ? MerchantStats.EMPTY : c.current();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.stats.checkpoint-interval-ms:5000}")
+    public void checkpoint() {
+        // A lock rather than synchronized: with virtual threads a monitor held
+        // across JDBC pins the carrier, and Hikari spins (Thread.yield) while
+        // handing the connection back to waiters that then cannot be scheduled
+        checkpointLock.lock();
+        try {
+            doCheckpoint();
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void doCheckpoint() {
+        List<Map.Entry<UUID, MerchantStats>> deltas = new ArrayList<>();
+
+        counters.forEach((merchantId, c) -> {
+            MerchantStats delta = c.drain();
+            if (!delta.isEmpty()) {
+                deltas.add(Map.entry(merchantId, delta));
+            }
+        });
+
+        if (!deltas.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(ADD_SQL, deltas, deltas.size(), (ps, entry) -> {
+                    MerchantStats d = entry.getValue();
+                    ps.setObject(1, entry.getKey());
+                    ps.setLong(2, d.totalTransactions());
+                    ps.setLong(3, d.successfulTransactions());
+                    ps.setLong(4, d.failedTransactions());
+                    ps.setLong(5, d.successfulAmount());
+                });
+            } catch (Exception e) {
+                log.warn("Merchant stats checkpoint failed, will retry", e);
+                deltas.forEach(entry -> counters.get(entry.getKey()).undrain(entry.getValue()));
+                return;
+            }
+        }
+
+        reloadTotals();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        checkpoint();
+    }
+
+    private void reloadTotals() {
+        jdbcTemplate.query("""
+            SELECT merchant_id, total_transactions, successful_transactions,
+                   failed_transactions, successful_amount
+            FROM merchant_stats
+        """, rs -> {
+            counters(rs.getObject("merchant_id", UUID.class)).checkpointed = new MerchantStats(
+                    rs.getLong("total_transactions"),
+                    rs.getLong("successful_transactions"),
+                    rs.getLong("failed_transactions"),
+                    rs.getLong("successful_amount")
+            );
+        });
+    }
+
+    private Counters counters(UUID merchantId) {
+        return counters.computeIfAbsent(merchantId, id -> new Counters());
+    }
+
+    /**
+     * Totals as of the last checkpoint plus the increments since then.
+     */
+    private static final class Counters {
+        final LongAdder total = new LongAdder();
+        final LongAdder successful = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder successfulAmount = new LongAdder();
+
+        volatile MerchantStats checkpointed = MerchantStats.EMPTY;
+
+        MerchantStats pending() {
+            return new MerchantStats(total.sum(), successful.sum(), failed.sum(), successfulAmount.sum());
+        }
+
+        MerchantStats current() {
+            return checkpointed.plus(pending());
+        }
+
+        // Moves the pending increments into the checkpointed totals
+        MerchantStats drain() {
+            MerchantStats delta = new MerchantStats(
+                    total.sumThenReset(),
+                    successful.sumThenReset(),
+                    failed.sumThenReset(),
+                    successfulAmount.sumThenReset()
+            );
+            checkpointed = checkpointed.plus(delta);
+            return delta;
+        }
+
+        void undrain(MerchantStats delta) {
+            checkpointed = checkpointed.minus(delta);
+            total.add(delta.totalTransactions());
+            successful.add(delta.successfulTransactions());
+            failed.add(delta.failedTransactions());
+            successfulAmount.add(delta.successfulAmount());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.gateway.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.gateway.config.ReadRoutingDataSource;
+import com.gateway.models.OrderSnapshot;
+import com.gateway.util.CreatedAtRange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-through cache in front of the orders table.
+ *
+ * Nothing updates an order once it has been inserted, so snapshots are
+ * served from memory until they expire or are evicted by size; anything
+ * that starts changing orders must evict them here too. Missing orders are
+ * not cached.
+ *
+ * Misses are loaded through the read pool; if that is a replica and the
+ * order is not there, the primary is asked before answering "not found".
+ * Hit/miss counts are published as cache.* metrics tagged cache=orders.
+ */
+@Service
+public class OrderLookupService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+    private final ReadRoutingDataSource readDataSource;
+    private final Cache<String, OrderSnapshot> cache;
+
+    public OrderLookupService(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("readJdbcTemplate") JdbcTemplate readJdbcTemplate,
+            ReadRoutingDataSource readDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.order-cache.ttl:10m}") Duration ttl,
+            @Value("${gateway.order-cache.max-size:100000}") long maxSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+        this.readDataSource = readDataSource;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "orders");
+    }
+
+    /**
+     * Returns the order, or null if it does not exist.
+     */
+    public OrderSnapshot find(String orderId) {
+        if (orderId == null) {
+            return null;
+        }
+        return cache.get(orderId, this::load);
+    }
+
+    /**
+     * Seeds the cache with an order that was just inserted, so the checkout
+     * page's first fetch does not go to the database.
+     */
+    public void put(OrderSnapshot order) {
+        cache.put(order.id(), order);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private OrderSnapshot load(String orderId) {
+        CreatedAtRange createdAt = CreatedAtRange.of(orderId);
+        OrderSnapshot order = load(readJdbcTemplate, orderId, createdAt);
+        if (order == null && readDataSource.routesToReplica()) {
+            order = load(jdbcTemplate, orderId, createdAt);
+        }
+        // An id from before the time prefix may have decoded to a wrong time
+        if (order == null && createdAt.bounded()) {
+            order = load(readJdbcTemplate, orderId, CreatedAtRange.UNBOUNDED);
+        }
+        return order;
+    }
+
+    private static OrderSnapshot load(JdbcTemplate source, String orderId, CreatedAtRange createdAt) {
+        List<OrderSnapshot> rows = source.query(
+                "SELECT id, merchant_id, amount, currency, status FROM orders"
+                        + " WHERE id = ? AND created_at >= ? AND created_at < ?",
+                (rs, i) -> new OrderSnapshot(
+                        rs.getString("id"),
+                        rs.getObject("merchant_id", UUID.class),
+                        rs.getInt("amount"),
+                        rs.getString("currency"),
+                        rs.getString("status")
+                ),
+                orderId, createdAt.from(), createdAt.to()
+        );
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
@@ -0,0 +1,196 @@
+package com.gateway.services;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of orders and payments (see schema.sql).
+ *
+ * On startup and then every check-interval it makes sure each table has a
+ * DEFAULT partition (a safety net, normally empty) and one partition per
+ * month from the current month to months-ahead months out. With
+ * retention-months set, partitions that ended more than that many months
+ * ago are detached and moved to the archive schema: still there for
+ * reporting, but no longer part of the hot tables and their indexes.
+ *
+ * Each run is one transaction under an advisory lock, so several gateway
+ * nodes can run it without racing. Tables created before partitioning are
+ * skipped with a warning until they are migrated.
+ */
+@Component
+public class PartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenance.class);
+
+    private static final List<String> TABLES = List.of("orders", "payments");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'p'yyyy_MM");
+
+    // pg_get_expr of a range bound, e.g.
+    // FOR VALUES FROM ('2026-10-01 00:00:00') TO ('2026-11-01 00:00:00')
+    private static final Pattern RANGE_BOUND =
+            Pattern.compile("FROM \\((?:'([^']*)'|MINVALUE)\\) TO \\((?:'([^']*)'|MAXVALUE)\\)");
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[.SSSSSS]");
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = ?::regclass
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final String archiveSchema;
+    private final Set<String> warnedUnpartitioned = ConcurrentHashMap.newKeySet();
+
+    public PartitionMaintenance(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${gateway.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${gateway.partitions.retention-months:0}") int retentionMonths,
+            @Value("${gateway.partitions.archive-schema:archive}") String archiveSchema
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveSchema = archiveSchema;
+    }
+
+    @PostConstruct
+    void onStartup() {
+        run();
+    }
+
+    @Scheduled(
+            initialDelayString = "${gateway.partitions.check-interval-ms:3600000}",
+            fixedDelayString = "${gateway.partitions.check-interval-ms:3600000}"
+    )
+    public void run() {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                Boolean locked = jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(hashtext('gateway.partition-maintenance'))", Boolean.class);
+                if (!Boolean.TRUE.equals(locked)) {
+                    return; // Another node is on it
+                }
+
+                // Same clock and time zone as the CURRENT_TIMESTAMP defaults
+                LocalDate thisMonth = jdbcTemplate.queryForObject(
+                        "SELECT date_trunc('month', LOCALTIMESTAMP)::date", LocalDate.class);
+
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                for (String table : TABLES) {
+                    maintain(table, thisMonth);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Partition maintenance failed, will retry on the next run", e);
+        }
+    }
+
+    private void maintain(String table, LocalDate thisMonth) {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, table);
+
+        if (!"p".equals(kind)) {
+            if (warnedUnpartitioned.add(table)) {
+                log.warn("Table {} is not partitioned; run db/partition-migration.sql to convert it", table);
+            }
+            return;
+        }
+
+        List<Partition> partitions = jdbcTemplate.query(PARTITIONS_SQL,
+                (rs, i) -> Partition.parse(rs.getString(1), rs.getString(2)), table);
+
+        if (partitions.stream().noneMatch(Partition::isDefault)) {
+            jdbcTemplate.execute("CREATE TABLE " + table + "_default PARTITION OF " + table + " DEFAULT");
+            log.info("Created partition {}_default", table);
+        }
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            LocalDateTime from = thisMonth.plusMonths(i).atStartOfDay();
+            LocalDateTime to = from.plusMonths(1);
+
+            // Skip months already covered, e.g. by a migrated legacy table
+            if (partitions.stream().anyMatch(p -> p.overlaps(from, to))) {
+                continue;
+            }
+
+            String name = table + "_" + from.format(SUFFIX);
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + table
+                    + " FOR VALUES FROM ('" + from.toLocalDate() + "') TO ('" + to.toLocalDate() + "')");
+            log.info("Created partition {}", name);
+        }
+
+        if (retentionMonths > 0) {
+            LocalDateTime cutoff = thisMonth.minusMonths(retentionMonths).atStartOfDay();
+            for (Partition partition : partitions) {
+                if (!partition.isDefault() && partition.to != null && !partition.to.isAfter(cutoff)) {
+                    archive(table, partition.name);
+                }
+            }
+        }
+
+        Boolean defaultHasRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + table + "_default)", Boolean.class);
+        if (Boolean.TRUE.equals(defaultHasRows)) {
+            log.warn("{}_default has rows: some {} fall outside the monthly partitions", table, table);
+        }
+    }
+
+    private void archive(String table, String partition) {
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+        jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+        jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA " + archiveSchema);
+        log.info("Archived partition {} to schema {}", partition, archiveSchema);
+    }
+
+    /**
+     * A partition and its range; from/to are null for MINVALUE/MAXVALUE,
+     * both are null for the DEFAULT partition.
+     */
+    private record Partition(String name, boolean isDefault, LocalDateTime from, LocalDateTime to) {
+
+        static Partition parse(String name, String bound) {
+            if ("DEFAULT".equals(bound)) {
+                return new Partition(name, true, null, null);
+            }
+            Matcher m = RANGE_BOUND.matcher(bound);
+            if (!m.find()) {
+                throw new IllegalStateException("Unexpected partition bound for " + name + ": " + bound);
+            }
+            return new Partition(name, false, timestamp(m.group(1)), timestamp(m.group(2)));
+        }
+
+        private static LocalDateTime timestamp(String value) {
+            return value == null ? null : LocalDateTime.parse(value, BOUND_FORMAT);
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return !isDefault
+                    && (from == null || from.isBefore(end))
+                    && (to == null || to.isAfter(start));
+        }
+    }
+}
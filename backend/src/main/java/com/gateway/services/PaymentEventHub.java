@@ -0,0 +1,168 @@
+package com.gateway.services;
+
+import com.gateway.models.PaymentStatus;
+import com.gateway.models.StatusTransition;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process publish/subscribe for payment status, behind the checkout SSE
+ * stream.
+ *
+ * A subscriber is an SseEmitter waiting for one payment's final status.
+ * Waiting costs no thread (the request is in servlet async mode), only the
+ * connection and a map entry; open streams are capped by max-streams. When
+ * a StatusTransition commits, the payment's subscribers get a "status"
+ * event and their streams are closed.
+ *
+ * Sends are blocking socket writes, so they run on virtual threads rather
+ * than on the status writer thread that publishes the event.
+ */
+@Service
+public class PaymentEventHub {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentEventHub.class);
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxStreams;
+    private final Duration streamTimeout;
+
+    public PaymentEventHub(
+            MeterRegistry meterRegistry,
+            @Value("${gateway.sse.max-streams:10000}") int maxStreams,
+            @Value("${gateway.sse.timeout:5m}") Duration streamTimeout
+    ) {
+        this.maxStreams = maxStreams;
+        this.streamTimeout = streamTimeout;
+        Gauge.builder("gateway.sse.open.streams", openStreams, AtomicInteger::get)
+                .description("Open checkout payment status streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for a payment that is still processing, starting with
+     * its current status. Returns null if max-streams are already open.
+     */
+    public SseEmitter subscribe(String paymentId, PaymentStatus current) {
+        if (openStreams.incrementAndGet() > maxStreams) {
+            openStreams.decrementAndGet();
+            return null;
+        }
+
+        Subscriber subscriber = new Subscriber(paymentId, new SseEmitter(streamTimeout.toMillis()));
+        subscribers.computeIfAbsent(paymentId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscriber.close());
+
+        try {
+            emitter.send(SseEmitter.event().name("status").data(current));
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * A stream holding just the final status, for payments that have
+     * already finished.
+     */
+    public static SseEmitter finished(PaymentStatus status) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("status").data(status));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onStatusChanged(StatusTransition transition) {
+        publish(transition.paymentId(), PaymentStatus.of(transition));
+    }
+
+    /**
+     * Sends a final status to the payment's subscribers and closes their
+     * streams. Publishing twice is harmless: the first call removes them.
+     */
+    public void publish(String paymentId, PaymentStatus status) {
+        Set<Subscriber> waiting = subscribers.remove(paymentId);
+        if (waiting == null) {
+            return;
+        }
+        for (Subscriber subscriber : waiting) {
+            sender.execute(() -> {
+                try {
+                    subscriber.emitter.send(SseEmitter.event().name("status").data(status));
+                    subscriber.emitter.complete();
+                } catch (Exception e) {
+                    subscriber.emitter.completeWithError(e);
+                }
+            });
+        }
+    }
+
+    // Keeps idle streams alive through proxies and finds clients that left
+    @Scheduled(fixedDelayString = "${gateway.sse.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> sender.execute(() -> {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("keepalive"));
+            } catch (Exception e) {
+                subscriber.emitter.completeWithError(e);
+            }
+        })));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+        sender.shutdown();
+        log.debug("Closed {} payment event streams", openStreams.get());
+    }
+
+    private final class Subscriber {
+        final String paymentId;
+        final SseEmitter emitter;
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(String paymentId, SseEmitter emitter) {
+            this.paymentId = paymentId;
+            this.emitter = emitter;
+        }
+
+        // Runs once per stream, however it ended
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                openStreams.decrementAndGet();
+                subscribers.computeIfPresent(paymentId, (id, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.gateway.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Streams a merchant's payments for a time range as NDJSON or CSV.
+ *
+ * Rows come from a server-side cursor: Postgres only uses one when the
+ * statement runs with a fetch size inside a transaction, hence the
+ * dedicated JdbcTemplate and the read-only TransactionTemplate, both on the
+ * read pool. Each row is
+ * written to the output as soon as it is read, so memory use does not
+ * depend on the number of rows.
+ *
+ * If the client disconnects, the next write fails with an IOException; the
+ * transaction is rolled back, which closes the cursor, and the exception is
+ * rethrown as UncheckedIOException.
+ */
+@Service
+public class PaymentExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String[] COLUMNS = {
+            "id", "order_id", "amount", "currency", "method", "status", "vpa", "card_network",
+            "card_last4", "error_code", "error_description", "created_at", "updated_at"
+    };
+
+    private static final String EXPORT_SQL = """
+            SELECT id, order_id, amount, currency, method, status, vpa, card_network, card_last4,
+                   error_code, error_description, created_at, updated_at
+            FROM payments
+            WHERE merchant_id = ? AND created_at >= ? AND created_at < ?
+            ORDER BY created_at, id
+            """;
+
+    private final JdbcTemplate cursorTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public PaymentExportService(
+            @Qualifier("readDataSource") DataSource readDataSource,
+            ObjectMapper objectMapper
+    ) {
+        this.cursorTemplate = new JdbcTemplate(readDataSource);
+        this.cursorTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(new DataSourceTransactionManager(readDataSource));
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(UUID merchantId, LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        try {
+            rows.start();
+            readOnlyTransaction.executeWithoutResult(status ->
+                    cursorTemplate.query(EXPORT_SQL, rs -> {
+                        try {
+                            rows.write(rs);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, merchantId, from, to)
+            );
+            rows.finish();
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface RowWriter {
+        default void start() throws IOException {
+        }
+
+        void write(ResultSet rs) throws IOException, SQLException;
+
+        default void finish() throws IOException {
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator json;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            json.writeStartObject();
+            for (String column : COLUMNS) {
+                if (column.equals("amount")) {
+                    json.writeNumberField(column, rs.getInt(column));
+                } else {
+                    String value = text(rs, column);
+                    if (value != null) {
+                        json.writeStringField(column, value);
+                    }
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String value = text(rs, COLUMNS[i]);
+                if (value != null) {
+                    writeCsvField(value);
+                }
+            }
+            writer.write('\n');
+        }
+
+        // RFC 4180: quote fields containing separators, quotes or line breaks
+        private void writeCsvField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static String text(ResultSet rs, String column) throws SQLException {
+        if (column.equals("created_at") || column.equals("updated_at")) {
+            Timestamp ts = rs.getTimestamp(column);
+            return ts == null ? null : ts.toInstant().toString();
+        }
+        return rs.getString(column);
+    }
+}
@@ -0,0 +1,92 @@
+package com.gateway.services;
+
+import com.gateway.models.Payment;
+import com.gateway.util.CreatedAtRange;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Creates payments in one statement: INSERT ... SELECT from the order,
+ * RETURNING the new row. Amount, currency and merchant are copied from the
+ * order inside the database, so there is no separate order lookup and no
+ * window for the order to change in between. No row means the order does
+ * not exist (or belongs to another merchant).
+ *
+ * The order is looked up with created_at bounds derived from its id (see
+ * CreatedAtRange), which keeps the SELECT to one partition of orders. If
+ * that finds nothing, the insert is repeated without bounds, for orders
+ * whose id predates the time prefix.
+ *
+ * The SQL is constant, so the driver keeps it server-side prepared per
+ * connection (see prepareThreshold in application.yml).
+ */
+@Service
+public class PaymentInserter {
+
+    /**
+     * A payment that was just inserted as 'processing', and its merchant.
+     */
+    public record Created(UUID merchantId, Payment payment) {}
+
+    private static final String INSERT_SQL = """
+            INSERT INTO payments
+            (id, order_id, merchant_id, amount, currency, method, status, vpa, card_network, card_last4,
+             created_at, updated_at)
+            SELECT ?, o.id, o.merchant_id, o.amount, o.currency, ?, 'processing', ?, ?, ?,
+                   CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+            FROM orders o
+            WHERE o.id = ? AND o.created_at >= ? AND o.created_at < ?
+            """;
+
+    private static final String RETURNING = " RETURNING merchant_id, " + Payment.COLUMNS;
+
+    private static final String INSERT_FOR_MERCHANT_SQL = INSERT_SQL + " AND o.merchant_id = ?" + RETURNING;
+    private static final String INSERT_FOR_ANY_MERCHANT_SQL = INSERT_SQL + RETURNING;
+
+    private static final RowMapper<Created> CREATED_MAPPER = (rs, row) ->
+            new Created(rs.getObject("merchant_id", UUID.class), Payment.ROW_MAPPER.mapRow(rs, row));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PaymentInserter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Merchant API: the order must belong to the merchant. Returns null if
+     * there is no such order.
+     */
+    public Created insert(String paymentId, String orderId, UUID merchantId, String method,
+                          String vpa, String cardNetwork, String cardLast4) {
+        return insert(orderId, createdAt -> first(jdbcTemplate.query(INSERT_FOR_MERCHANT_SQL, CREATED_MAPPER,
+                paymentId, method, vpa, cardNetwork, cardLast4, orderId, createdAt.from(), createdAt.to(),
+                merchantId)));
+    }
+
+    /**
+     * Checkout: any merchant's order. Returns null if it does not exist.
+     */
+    public Created insertForCheckout(String paymentId, String orderId, String method,
+                                     String vpa, String cardNetwork, String cardLast4) {
+        return insert(orderId, createdAt -> first(jdbcTemplate.query(INSERT_FOR_ANY_MERCHANT_SQL, CREATED_MAPPER,
+                paymentId, method, vpa, cardNetwork, cardLast4, orderId, createdAt.from(), createdAt.to())));
+    }
+
+    private static Created insert(String orderId, Function<CreatedAtRange, Created> attempt) {
+        CreatedAtRange createdAt = CreatedAtRange.of(orderId);
+        Created created = attempt.apply(createdAt);
+        if (created == null && createdAt.bounded()) {
+            created = attempt.apply(CreatedAtRange.UNBOUNDED);
+        }
+        return created;
+    }
+
+    private static Created first(List<Created> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
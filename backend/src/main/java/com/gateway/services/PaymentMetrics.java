@@ -0,0 +1,111 @@
+package com.gateway.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Latency of each stage a payment goes through, as one timer
+ * gateway.payment.stage tagged with:
+ *
+ *   stage     auth, insert (which also reads the order), bank,
+ *             status_update
+ *   endpoint  merchant_api or checkout
+ *   method    upi, card, other (none for auth, which runs before the body
+ *             is read)
+ *   outcome   auth: authenticated, rejected or throttled; insert: success
+ *             or order_not_found; bank: success, failed or unavailable;
+ *             status_update: success or failed; error in any stage that
+ *             threw
+ *
+ * Timers publish percentile histograms, so p99 per stage can be computed
+ * across instances from /actuator/prometheus.
+ */
+@Component
+public class PaymentMetrics {
+
+    public static final String MERCHANT_API = "merchant_api";
+    public static final String CHECKOUT = "checkout";
+
+    public enum Stage {
+        AUTH("auth"),
+        INSERT("insert"),
+        BANK("bank"),
+        STATUS_UPDATE("status_update");
+
+        final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Which payment flow a measurement belongs to.
+     */
+    public record Flow(String endpoint, String method) {
+
+        public static Flow of(String endpoint, String method) {
+            return new Flow(endpoint, "upi".equals(method) || "card".equals(method) ? method : "other");
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public PaymentMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records a stage that started at startNanos (System.nanoTime()).
+     */
+    public void record(Stage stage, Flow flow, String outcome, long startNanos) {
+        timer(stage, flow.endpoint(), flow.method(), outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times a stage that either succeeds or throws.
+     */
+    public <T> T time(Stage stage, Flow flow, Supplier<T> work) {
+        return time(stage, flow, work, result -> "success");
+    }
+
+    /**
+     * Times a stage whose outcome depends on its result; "error" if it throws.
+     */
+    public <T> T time(Stage stage, Flow flow, Supplier<T> work, Function<T, String> outcomeOf) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = work.get();
+            outcome = outcomeOf.apply(result);
+            return result;
+        } finally {
+            record(stage, flow, outcome, start);
+        }
+    }
+
+    public void recordAuth(String outcome, long startNanos) {
+        timer(Stage.AUTH, MERCHANT_API, "none", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Stage stage, String endpoint, String method, String outcome) {
+        return Timer.builder("gateway.payment.stage")
+                .description("Latency of each payment pipeline stage")
+                .tag("stage", stage.tag)
+                .tag("endpoint", endpoint)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,120 @@
+package com.gateway.services;
+
+import com.gateway.acquirer.AcquirerConnector;
+import com.gateway.acquirer.AcquirerRequest;
+import com.gateway.acquirer.AcquirerResult;
+import com.gateway.models.StatusTransition;
+import com.gateway.services.PaymentMetrics.Flow;
+import com.gateway.services.PaymentMetrics.Stage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finishes payments off the request thread.
+ *
+ * Controllers insert the 'processing' row, hand the payment to process()
+ * and return immediately. The acquirer is called asynchronously, so a
+ * payment waiting for the bank holds no thread; its answer is turned into
+ * a status transition on one of the workers.
+ *
+ * A payment counts as pending from process() until PaymentStatusWriter
+ * confirms its status: in durable mode that is the commit, so a database
+ * that cannot keep up fills the queue and new payments get 503s instead of
+ * piling up unwritten.
+ */
+@Component
+public class PaymentProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
+
+    private final AcquirerConnector acquirer;
+    private final PaymentStatusWriter statusWriter;
+    private final MerchantStatsService merchantStats;
+    private final PaymentMetrics metrics;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int queueCapacity;
+    private final ExecutorService workers;
+
+    public PaymentProcessor(
+            AcquirerConnector acquirer,
+            PaymentStatusWriter statusWriter,
+            MerchantStatsService merchantStats,
+            PaymentMetrics metrics,
+            @Value("${gateway.processing.workers:4}") int workerCount,
+            @Value("${gateway.processing.queue-capacity:10000}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.acquirer = acquirer;
+        this.statusWriter = statusWriter;
+        this.merchantStats = merchantStats;
+        this.metrics = metrics;
+        this.queueCapacity = queueCapacity;
+        this.workers = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("payment-worker-", 0).factory())
+                : Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().daemon().name("payment-worker-", 0).factory());
+    }
+
+    /**
+     * Admission check done before the payment row is written, so too many
+     * payments in flight turn into a 503 instead of a payment stuck in
+     * 'processing'.
+     */
+    public boolean isSaturated() {
+        return pending.get() >= queueCapacity;
+    }
+
+    /**
+     * Sends a payment that was just inserted to the acquirer and records
+     * its final status once the answer is in.
+     */
+    public void process(AcquirerRequest request, Flow flow) {
+        merchantStats.paymentCreated(request.merchantId());
+        pending.incrementAndGet();
+
+        long startedAt = System.nanoTime();
+        acquirer.authorize(request).whenCompleteAsync((result, error) -> {
+            CompletableFuture<Void> confirmed;
+            try {
+                // ResilientAcquirer turns failures into results; this is a last resort
+                confirmed = complete(request, error == null ? result : AcquirerResult.error("Bank request failed"),
+                        flow, startedAt);
+            } catch (Exception e) {
+                log.error("Failed to complete payment {}", request.paymentId(), e);
+                confirmed = CompletableFuture.completedFuture(null);
+            }
+            confirmed.whenComplete((ignored, writeError) -> pending.decrementAndGet());
+        }, workers);
+    }
+
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    private CompletableFuture<Void> complete(AcquirerRequest request, AcquirerResult result, Flow flow,
+                                             long startedAt) {
+        metrics.record(Stage.BANK, flow, result.outcome().tag(), startedAt);
+
+        return statusWriter.submit(result.isApproved()
+                ? StatusTransition.success(request.paymentId(), request.merchantId(), request.amount())
+                : StatusTransition.failed(request.paymentId(), request.merchantId(), request.amount(),
+                        result.errorCode(), result.errorDescription()),
+                flow);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+
+        if (pending.get() > 0) {
+            log.warn("Shutting down with {} payments still in 'processing'", pending.get());
+        }
+    }
+}
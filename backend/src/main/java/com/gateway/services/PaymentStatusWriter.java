@@ -0,0 +1,254 @@
+package com.gateway.services;
+
+import com.gateway.models.StatusTransition;
+import com.gateway.services.PaymentMetrics.Flow;
+import com.gateway.services.PaymentMetrics.Stage;
+import com.gateway.util.CreatedAtRange;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage for payment status transitions.
+ *
+ * Transitions are queued and written by a single flusher thread as one JDBC
+ * batch per transaction. A batch is flushed once it reaches batch-size or
+ * once flush-interval has passed since its first transition, whichever
+ * comes first.
+ *
+ * A transition only applies to a payment still in 'processing'; one for a
+ * payment that already has its final status is a no-op. A batch that fails
+ * is retried (transient errors up to max-attempts times, with doubling
+ * retry-backoff), and then written one transition at a time so one bad row
+ * cannot lose the rest.
+ *
+ * The future returned by submit() is the confirmation: in durable mode it
+ * completes only after the transition has committed (and fails if it could
+ * not be written); otherwise it completes as soon as the transition is
+ * queued. PaymentProcessor counts a payment as pending until then.
+ *
+ * The same transaction queues the merchants' webhook events (see
+ * WebhookDispatcher) for the payments it actually updated, so an event
+ * exists exactly when its transition does.
+ *
+ * Time from submit() to commit is recorded as the status_update stage of
+ * PaymentMetrics, whichever mode is used.
+ *
+ * Each committed update is then published as an application event.
+ * Listeners run on the flusher thread, so they must be quick and must not
+ * block.
+ */
+@Component
+public class PaymentStatusWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentStatusWriter.class);
+
+    private static final String UPDATE_SQL = """
+            UPDATE payments
+            SET status = ?,
+                error_code = ?,
+                error_description = ?,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND created_at >= ? AND created_at < ?
+              AND status = 'processing'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher events;
+    private final WebhookDispatcher webhooks;
+    private final PaymentMetrics metrics;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean durable;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    public PaymentStatusWriter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher events,
+            WebhookDispatcher webhooks,
+            PaymentMetrics metrics,
+            @Value("${gateway.status-writer.batch-size:100}") int batchSize,
+            @Value("${gateway.status-writer.flush-interval-ms:20}") long flushIntervalMs,
+            @Value("${gateway.status-writer.durable:false}") boolean durable,
+            @Value("${gateway.status-writer.max-attempts:3}") int maxAttempts,
+            @Value("${gateway.status-writer.retry-backoff:100ms}") Duration retryBackoff
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.webhooks = webhooks;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.durable = durable;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.flusher = Thread.ofPlatform().daemon().name("payment-status-writer").start(this::runFlusher);
+    }
+
+    public CompletableFuture<Void> submit(StatusTransition transition, Flow flow) {
+        Pending pending = new Pending(transition, flow, System.nanoTime(), new CompletableFuture<>());
+        queue.add(pending);
+
+        if (!durable) {
+            pending.committed.complete(null);
+        }
+        return pending.committed;
+    }
+
+    private void runFlusher() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and write what has been collected
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<Pending> updated;
+        try {
+            updated = writeWithRetries(batch);
+            batch.forEach(this::confirm);
+        } catch (Exception e) {
+            log.warn("Failed to write {} payment status transitions as a batch, writing them one by one",
+                    batch.size(), e);
+            updated = new ArrayList<>(batch.size());
+            for (Pending p : batch) {
+                try {
+                    updated.addAll(writeWithRetries(List.of(p)));
+                    confirm(p);
+                } catch (Exception rowError) {
+                    log.error("Failed to write status {} for payment {}; it stays 'processing'",
+                            p.transition.status(), p.transition.paymentId(), rowError);
+                    p.committed.completeExceptionally(rowError);
+                    metrics.record(Stage.STATUS_UPDATE, p.flow, "error", p.submittedAtNanos);
+                }
+            }
+        }
+
+        for (Pending p : updated) {
+            try {
+                events.publishEvent(p.transition);
+            } catch (Exception e) {
+                log.warn("Status listener failed for payment {}", p.transition.paymentId(), e);
+            }
+        }
+    }
+
+    private void confirm(Pending p) {
+        p.committed.complete(null);
+        metrics.record(Stage.STATUS_UPDATE, p.flow, p.transition.status(), p.submittedAtNanos);
+    }
+
+    /**
+     * Writes the transitions in one transaction, retrying transient failures.
+     * Returns those that updated a payment still in 'processing'.
+     */
+    private List<Pending> writeWithRetries(List<Pending> transitions) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write(transitions);
+            } catch (TransientDataAccessException | RecoverableDataAccessException
+                     | DataAccessResourceFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("Writing {} payment status transitions failed (attempt {} of {}), retrying: {}",
+                        transitions.size(), attempt, maxAttempts, e.toString());
+                Thread.sleep(retryBackoffMillis << (attempt - 1));
+            }
+        }
+    }
+
+    private List<Pending> write(List<Pending> transitions) {
+        return transactionTemplate.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, transitions, transitions.size(), (ps, p) -> {
+                ps.setString(1, p.transition.status());
+                ps.setString(2, p.transition.errorCode());
+                ps.setString(3, p.transition.errorDescription());
+                ps.setString(4, p.transition.paymentId());
+                CreatedAtRange createdAt = CreatedAtRange.of(p.transition.paymentId());
+                ps.setTimestamp(5, createdAt.from());
+                ps.setTimestamp(6, createdAt.to());
+            });
+
+            List<Pending> updated = new ArrayList<>(transitions.size());
+            for (int i = 0; i < transitions.size(); i++) {
+                int count = counts[0][i];
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    updated.add(transitions.get(i));
+                } else {
+                    log.debug("Payment {} is no longer processing, status {} not applied",
+                            transitions.get(i).transition.paymentId(), transitions.get(i).transition.status());
+                }
+            }
+            if (!updated.isEmpty()) {
+                webhooks.enqueue(updated.stream().map(Pending::transition).toList());
+            }
+            return updated;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private record Pending(StatusTransition transition, Flow flow, long submittedAtNanos,
+                           CompletableFuture<Void> committed) {}
+}
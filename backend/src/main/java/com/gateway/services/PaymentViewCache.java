@@ -0,0 +1,76 @@
+package com.gateway.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gateway.models.Payment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Serialized GET /api/v1/payments/{id} responses for payments that can no
+ * longer change (success or failed).
+ *
+ * A hit skips the database and JSON serialization; the bytes are written
+ * as they are. Payments still processing are never cached. Hit/miss counts
+ * are published as cache.* metrics tagged cache=payments.
+ */
+@Service
+public class PaymentViewCache {
+
+    public record View(UUID merchantId, String etag, byte[] json) {}
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, View> cache;
+
+    public PaymentViewCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.payment-cache.ttl:5m}") Duration ttl,
+            @Value("${gateway.payment-cache.max-size:50000}") long maxSize
+    ) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "payments");
+    }
+
+    public static boolean isTerminal(String status) {
+        return "success".equals(status) || "failed".equals(status);
+    }
+
+    /**
+     * The version of a payment as seen by clients: it changes exactly when
+     * the status does.
+     */
+    public static String etag(String status) {
+        return "\"" + status + "\"";
+    }
+
+    /**
+     * Returns the cached view if it belongs to the given merchant.
+     */
+    public View find(String paymentId, UUID merchantId) {
+        View view = cache.getIfPresent(paymentId);
+        return view != null && view.merchantId().equals(merchantId) ? view : null;
+    }
+
+    public View putTerminal(UUID merchantId, Payment payment) {
+        try {
+            View view = new View(merchantId, etag(payment.status()), objectMapper.writeValueAsBytes(payment));
+            cache.put(payment.id(), view);
+            return view;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not serialize payment " + payment.id(), e);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.gateway.services;
+
+import com.gateway.models.StatusTransition;
+import com.gateway.util.CreatedAtRange;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers payment.success / payment.failed events to merchants'
+ * webhook_url.
+ *
+ * Events are queued by enqueue(), which PaymentStatusWriter calls inside
+ * the transaction that writes the status change, so an event exists exactly
+ * when its transition committed. A poller claims due rows with
+ * FOR UPDATE SKIP LOCKED (several nodes can poll the same table) and sends
+ * them over one shared non-blocking HttpClient, at most
+ * max-concurrency-per-merchant at a time per merchant so one slow endpoint
+ * cannot use up every connection. Claimed rows beyond that wait in the
+ * merchant's lane, and a merchant with rows waiting is not claimed for
+ * again until they have been sent, so one slow merchant cannot take up
+ * max-in-flight either.
+ *
+ * Each request carries X-Webhook-Id, X-Webhook-Timestamp and
+ * X-Webhook-Signature: sha256=hex(HMAC-SHA256(api_secret, timestamp + "." + body)).
+ * Non-2xx responses and errors are retried with exponential backoff and
+ * jitter; after max-attempts the row is marked dead. Delivery is
+ * at-least-once, so receivers should dedupe on X-Webhook-Id.
+ *
+ * The outcome of an attempt is only recorded while the row is still on
+ * that attempt: if the lease ran out and another poll started a new one,
+ * the late result is dropped instead of overwriting the newer attempt's.
+ * Delivered and dead rows are deleted after retention.
+ */
+@Service
+public class WebhookDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    private static final String ENQUEUE_SQL = """
+            INSERT INTO webhook_deliveries
+            (id, merchant_id, event, payload, status, next_attempt_at, created_at, updated_at)
+            SELECT ?, p.merchant_id, ?,
+                   json_build_object(
+                       'event', ?,
+                       'created_at', CURRENT_TIMESTAMP,
+                       'data', json_build_object('payment', json_build_object(
+                           'id', p.id,
+                           'order_id', p.order_id,
+                           'amount', p.amount,
+                           'currency', p.currency,
+                           'method', p.method,
+                           'status', p.status,
+                           'vpa', p.vpa,
+                           'card_network', p.card_network,
+                           'card_last4', p.card_last4,
+                           'error_code', p.error_code,
+                           'error_description', p.error_description,
+                           'created_at', p.created_at,
+                           'updated_at', p.updated_at
+                       ))
+                   )::text,
+                   'pending', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+            FROM payments p
+            JOIN merchants m ON m.id = p.merchant_id
+            WHERE p.id = ? AND p.created_at >= ? AND p.created_at < ?
+              AND m.webhook_url IS NOT NULL AND m.webhook_url <> ''
+            """;
+
+    // Claiming pushes next_attempt_at out by the lease, so a row whose
+    // claimer died becomes due again once the lease has passed. The new
+    // next_attempt_at identifies the claim (see START_SQL).
+    private static final String CLAIM_SQL = """
+            UPDATE webhook_deliveries d
+            SET status = 'delivering',
+                next_attempt_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 millisecond'),
+                updated_at = CURRENT_TIMESTAMP
+            FROM merchants m
+            WHERE m.id = d.merchant_id
+              AND d.id IN (
+                  SELECT id FROM webhook_deliveries
+                  WHERE status IN ('pending', 'delivering') AND next_attempt_at <= CURRENT_TIMESTAMP
+                    AND merchant_id <> ALL(?)
+                  ORDER BY next_attempt_at
+                  LIMIT ?
+                  FOR UPDATE SKIP LOCKED
+              )
+            RETURNING d.id, d.merchant_id, d.event, d.payload, d.attempts, d.next_attempt_at,
+                      m.webhook_url, m.api_secret
+            """;
+
+    // Run when a claimed row actually goes out: counts the attempt and
+    // restarts the lease from now. Matches nothing if the claim's lease ran
+    // out while the row waited and another poll claimed it since.
+    private static final String START_SQL = """
+            UPDATE webhook_deliveries
+            SET attempts = attempts + 1,
+                next_attempt_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 millisecond'),
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND status = 'delivering' AND next_attempt_at = ?
+            RETURNING attempts
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdGenerator idGenerator;
+    private final HttpClient httpClient;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final int maxConcurrencyPerMerchant;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration requestTimeout;
+    private final Duration lease;
+    private final Duration retention;
+
+    private final Map<UUID, MerchantLane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    public WebhookDispatcher(
+            JdbcTemplate jdbcTemplate,
+            IdGenerator idGenerator,
+            @Value("${gateway.webhooks.enabled:true}") boolean enabled,
+            @Value("${gateway.webhooks.batch-size:100}") int batchSize,
+            @Value("${gateway.webhooks.max-in-flight:1000}") int maxInFlight,
+            @Value("${gateway.webhooks.max-concurrency-per-merchant:4}") int maxConcurrencyPerMerchant,
+            @Value("${gateway.webhooks.max-attempts:8}") int maxAttempts,
+            @Value("${gateway.webhooks.initial-backoff:5s}") Duration initialBackoff,
+            @Value("${gateway.webhooks.max-backoff:1h}") Duration maxBackoff,
+            @Value("${gateway.webhooks.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${gateway.webhooks.request-timeout:10s}") Duration requestTimeout,
+            @Value("${gateway.webhooks.retention:7d}") Duration retention
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idGenerator = idGenerator;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.maxConcurrencyPerMerchant = maxConcurrencyPerMerchant;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.requestTimeout = requestTimeout;
+        // Long enough that a claimed row is normally finished before it is due again
+        this.lease = requestTimeout.multipliedBy(6);
+        this.retention = retention;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * Queues one event per transition whose merchant has a webhook_url. Must
+     * run in the transaction that wrote the transitions.
+     */
+    public void enqueue(List<StatusTransition> transitions) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ENQUEUE_SQL, transitions, transitions.size(), (ps, t) -> {
+            String event = "payment." + t.status();
+            ps.setString(1, idGenerator.next("whd_"));
+            ps.setString(2, event);
+            ps.setString(3, event);
+            ps.setString(4, t.paymentId());
+            CreatedAtRange createdAt = CreatedAtRange.of(t.paymentId());
+            ps.setTimestamp(5, createdAt.from());
+            ps.setTimestamp(6, createdAt.to());
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.webhooks.poll-interval-ms:200}")
+    public void poll() {
+        if (!enabled || !running) {
+            return;
+        }
+        try {
+            int claimed;
+            do {
+                int capacity = Math.min(batchSize, maxInFlight - inFlight.get());
+                if (capacity <= 0) {
+                    return;
+                }
+                UUID[] backedUp = lanes.entrySet().stream()
+                        .filter(e -> !e.getValue().waiting.isEmpty())
+                        .map(Map.Entry::getKey)
+                        .toArray(UUID[]::new);
+                List<Delivery> due = jdbcTemplate.query(CLAIM_SQL, ps -> {
+                    ps.setLong(1, lease.toMillis());
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", backedUp));
+                    ps.setInt(3, capacity);
+                }, (rs, i) -> new Delivery(
+                        rs.getString("id"),
+                        rs.getObject("merchant_id", UUID.class),
+                        rs.getString("event"),
+                        rs.getString("payload"),
+                        rs.getInt("attempts"),
+                        rs.getTimestamp("next_attempt_at"),
+                        rs.getString("webhook_url"),
+                        rs.getString("api_secret")
+                ));
+
+                claimed = due.size();
+                inFlight.addAndGet(claimed);
+                due.forEach(this::dispatch);
+            } while (claimed == batchSize && running);
+        } catch (Exception e) {
+            log.warn("Webhook poll failed", e);
+        }
+    }
+
+    private void dispatch(Delivery delivery) {
+        MerchantLane lane = lanes.computeIfAbsent(delivery.merchantId(), id -> new MerchantLane(maxConcurrencyPerMerchant));
+        lane.waiting.add(delivery);
+        drain(lane);
+    }
+
+    // Called after every add and every release, so a queued delivery is
+    // never left behind while a permit is free
+    private void drain(MerchantLane lane) {
+        while (!lane.waiting.isEmpty() && lane.permits.tryAcquire()) {
+            Delivery next = lane.waiting.poll();
+            if (next == null) {
+                lane.permits.release();
+                continue;
+            }
+            send(next, lane);
+        }
+    }
+
+    private void send(Delivery delivery, MerchantLane lane) {
+        HttpRequest request;
+        try {
+            String timestamp = Long.toString(Instant.now().getEpochSecond());
+            request = HttpRequest.newBuilder(URI.create(delivery.url()))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("X-Webhook-Id", delivery.id())
+                    .header("X-Webhook-Event", delivery.event())
+                    .header("X-Webhook-Timestamp", timestamp)
+                    .header("X-Webhook-Signature", "sha256=" + sign(delivery.secret(), timestamp, delivery.payload()))
+                    .POST(HttpRequest.BodyPublishers.ofString(delivery.payload()))
+                    .build();
+        } catch (RuntimeException e) {
+            // Unusable URL (or none any more): retrying will not help
+            finished(delivery, lane);
+            markDead(delivery, delivery.attempts(), null, "Invalid webhook_url: " + e.getMessage());
+            return;
+        }
+
+        int attempt;
+        try {
+            List<Integer> started = jdbcTemplate.queryForList(START_SQL, Integer.class,
+                    lease.toMillis(), delivery.id(), delivery.claimedUntil());
+            if (started.isEmpty()) {
+                log.debug("Webhook delivery {} was claimed again while it waited, skipping it", delivery.id());
+                finished(delivery, lane);
+                return;
+            }
+            attempt = started.get(0);
+        } catch (Exception e) {
+            // The lease runs out and the delivery is claimed again
+            log.warn("Could not start webhook delivery {}", delivery.id(), e);
+            finished(delivery, lane);
+            return;
+        }
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    finished(delivery, lane);
+                    try {
+                        if (error == null && response.statusCode() / 100 == 2) {
+                            markDelivered(delivery, attempt, response.statusCode());
+                        } else if (error == null) {
+                            failed(delivery, attempt, response.statusCode(), "HTTP " + response.statusCode());
+                        } else {
+                            failed(delivery, attempt, null, error.toString());
+                        }
+                    } catch (Exception e) {
+                        // The lease runs out and the delivery is retried
+                        log.warn("Could not record webhook delivery {} result", delivery.id(), e);
+                    }
+                });
+    }
+
+    private void finished(Delivery delivery, MerchantLane lane) {
+        inFlight.decrementAndGet();
+        lane.permits.release();
+        drain(lane);
+    }
+
+    // The result updates below match only while the row is still
+    // 'delivering' on this attempt (attempts as returned by START_SQL)
+
+    private void markDelivered(Delivery delivery, int attempt, int responseCode) {
+        int updated = jdbcTemplate.update("""
+            UPDATE webhook_deliveries
+            SET status = 'delivered', last_response_code = ?, last_error = NULL,
+                delivered_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND status = 'delivering' AND attempts = ?
+        """, responseCode, delivery.id(), attempt);
+        logIfTakenOver(delivery, attempt, updated);
+    }
+
+    private void failed(Delivery delivery, int attempt, Integer responseCode, String error) {
+        if (attempt >= maxAttempts) {
+            markDead(delivery, attempt, responseCode, error);
+            return;
+        }
+        int updated = jdbcTemplate.update("""
+            UPDATE webhook_deliveries
+            SET status = 'pending', last_response_code = ?, last_error = ?,
+                next_attempt_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 millisecond'),
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND status = 'delivering' AND attempts = ?
+        """, responseCode, error, backoff(attempt).toMillis(), delivery.id(), attempt);
+        logIfTakenOver(delivery, attempt, updated);
+    }
+
+    private void markDead(Delivery delivery, int attempts, Integer responseCode, String error) {
+        int updated = jdbcTemplate.update("""
+            UPDATE webhook_deliveries
+            SET status = 'dead', last_response_code = ?, last_error = ?, updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND status = 'delivering' AND attempts = ?
+        """, responseCode, error, delivery.id(), attempts);
+        if (updated > 0) {
+            log.warn("Webhook delivery {} to merchant {} is dead after {} attempts: {}",
+                    delivery.id(), delivery.merchantId(), attempts, error);
+        }
+        logIfTakenOver(delivery, attempts, updated);
+    }
+
+    private static void logIfTakenOver(Delivery delivery, int attempt, int updated) {
+        if (updated == 0) {
+            log.info("Webhook delivery {} was taken over after its lease ran out; result of attempt {} dropped",
+                    delivery.id(), attempt);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.webhooks.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = jdbcTemplate.update("""
+            DELETE FROM webhook_deliveries
+            WHERE status IN ('delivered', 'dead')
+              AND updated_at < CURRENT_TIMESTAMP - (? * INTERVAL '1 second')
+        """, retention.toSeconds());
+        if (deleted > 0) {
+            log.debug("Deleted {} finished webhook deliveries", deleted);
+        }
+    }
+
+    // initial * 2^(attempt-1), capped, with +-20% jitter so retries spread out
+    Duration backoff(int attempt) {
+        long base = initialBackoff.toMillis() << Math.min(attempt - 1, 30);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Duration.ofMillis((long) (capped * jitter));
+    }
+
+    static String sign(String secret, String timestamp, String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) '.');
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // In-flight deliveries are not awaited; their leases expire and
+        // another poll (here or on another node) retries them
+        running = false;
+    }
+
+    private record Delivery(
+            String id,
+            UUID merchantId,
+            String event,
+            String payload,
+            int attempts,           // made before this claim
+            Timestamp claimedUntil, // identifies the claim, see START_SQL
+            String url,
+            String secret
+    ) {}
+
+    private static final class MerchantLane {
+        final Semaphore permits;
+        final Queue<Delivery> waiting = new ConcurrentLinkedQueue<>();
+
+        MerchantLane(int permits) {
+            this.permits = new Semaphore(permits);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.gateway.util;
+
+/**
+ * Outcome of PaymentValidationUtil.validateCard.
+ *
+ * Failures are shared constants, so a rejected card costs no allocation.
+ */
+public record CardValidationResult(
+        Reason reason,
+        String network,
+        String last4
+) {
+
+    public enum Reason {
+        VALID,
+        MISSING_FIELDS,
+        INVALID_CHARACTERS,
+        INVALID_LENGTH,
+        LUHN_CHECK_FAILED,
+        INVALID_EXPIRY,
+        EXPIRED,
+        INVALID_CVV
+    }
+
+    static final CardValidationResult MISSING_FIELDS = failure(Reason.MISSING_FIELDS);
+    static final CardValidationResult INVALID_CHARACTERS = failure(Reason.INVALID_CHARACTERS);
+    static final CardValidationResult INVALID_LENGTH = failure(Reason.INVALID_LENGTH);
+    static final CardValidationResult LUHN_CHECK_FAILED = failure(Reason.LUHN_CHECK_FAILED);
+    static final CardValidationResult INVALID_EXPIRY = failure(Reason.INVALID_EXPIRY);
+    static final CardValidationResult EXPIRED = failure(Reason.EXPIRED);
+    static final CardValidationResult INVALID_CVV = failure(Reason.INVALID_CVV);
+
+    public boolean valid() {
+        return reason == Reason.VALID;
+    }
+
+    private static CardValidationResult failure(Reason reason) {
+        return new CardValidationResult(reason, null, null);
+    }
+}
@@ -0,0 +1,66 @@
+package com.gateway.util;
+
+import com.gateway.services.IdGenerator;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Bounds on created_at for rows looked up by id, so that lookups on the
+ * partitioned orders and payments tables only probe the partition (or two,
+ * near a month boundary) the row can be in instead of every partition's
+ * primary key index.
+ *
+ * The bounds come from the id's millisecond prefix (see IdGenerator).
+ * created_at is set by the database, so it is allowed to differ from the
+ * id's time by MARGIN either way, which covers transactions that started
+ * before the id was generated and clock skew between nodes and database.
+ * Ids without a usable time prefix (see IdGenerator.createdAtMillis) get
+ * bounds that match every row. A few such ids decode to a plausible time
+ * anyway, so a lookup that misses with bounds is repeated without them
+ * before answering "not found".
+ *
+ * Queries bind from and to as "created_at >= ? AND created_at < ?".
+ */
+public record CreatedAtRange(Timestamp from, Timestamp to) {
+
+    private static final long MARGIN_MILLIS = Duration.ofHours(1).toMillis();
+
+    public static final CreatedAtRange UNBOUNDED =
+            new CreatedAtRange(new Timestamp(0), Timestamp.valueOf("9999-12-31 00:00:00"));
+
+    public static CreatedAtRange of(String id) {
+        long millis = IdGenerator.createdAtMillis(id);
+        return millis < 0
+                ? UNBOUNDED
+                : new CreatedAtRange(new Timestamp(millis - MARGIN_MILLIS), new Timestamp(millis + MARGIN_MILLIS));
+    }
+
+    /**
+     * Whether the range excludes any rows, i.e. a miss is worth repeating
+     * with UNBOUNDED.
+     */
+    public boolean bounded() {
+        return !equals(UNBOUNDED);
+    }
+
+    /**
+     * One range covering all the ids.
+     */
+    public static CreatedAtRange covering(Collection<String> ids) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (String id : ids) {
+            long millis = IdGenerator.createdAtMillis(id);
+            if (millis < 0) {
+                return UNBOUNDED;
+            }
+            min = Math.min(min, millis);
+            max = Math.max(max, millis);
+        }
+        return ids.isEmpty()
+                ? UNBOUNDED
+                : new CreatedAtRange(new Timestamp(min - MARGIN_MILLIS), new Timestamp(max + MARGIN_MILLIS));
+    }
+}
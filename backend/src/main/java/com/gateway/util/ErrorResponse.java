@@ -1,16 +1,42 @@
 package com.gateway.util;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
 import java.util.Map;
 
 public class ErrorResponse {
 
-    public static Map<String, Object> authError() {
-        return Map.of(
-                "error", Map.of(
-                        "code", "AUTHENTICATION_ERROR",
-                        "description", "Invalid API credentials"
-                )
-        );
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Fixed error responses, serialized once. ResponseEntity is immutable,
+    // so the same instance is returned on every request.
+    public static final byte[] AUTH_ERROR_JSON = json("AUTHENTICATION_ERROR", "Invalid API credentials");
+
+    public static final ResponseEntity<byte[]> UNAUTHORIZED = fixed(HttpStatus.UNAUTHORIZED, AUTH_ERROR_JSON);
+    public static final ResponseEntity<byte[]> ORDER_NOT_FOUND =
+            fixed(HttpStatus.NOT_FOUND, json("NOT_FOUND_ERROR", "Order not found"));
+    public static final ResponseEntity<byte[]> PAYMENT_NOT_FOUND =
+            fixed(HttpStatus.NOT_FOUND, json("NOT_FOUND_ERROR", "Payment not found"));
+    public static final ResponseEntity<byte[]> INVALID_VPA =
+            fixed(HttpStatus.BAD_REQUEST, json("INVALID_VPA", "Invalid VPA format"));
+    public static final ResponseEntity<byte[]> INVALID_CARD =
+            fixed(HttpStatus.BAD_REQUEST, json("INVALID_CARD", "Card validation failed"));
+    public static final ResponseEntity<byte[]> EXPIRED_CARD =
+            fixed(HttpStatus.BAD_REQUEST, json("EXPIRED_CARD", "Card has expired"));
+    public static final ResponseEntity<byte[]> INVALID_PAYMENT_METHOD =
+            fixed(HttpStatus.BAD_REQUEST, json("BAD_REQUEST_ERROR", "Invalid payment method"));
+    public static final ResponseEntity<byte[]> AT_CAPACITY = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(json("SERVICE_UNAVAILABLE", "Payment processing is at capacity, retry later"));
+
+    public static ResponseEntity<byte[]> cardError(CardValidationResult card) {
+        return card != null && card.reason() == CardValidationResult.Reason.EXPIRED ? EXPIRED_CARD : INVALID_CARD;
     }
 
     public static Map<String, Object> badRequest(String description) {
@@ -22,16 +48,6 @@ public class ErrorResponse {
         );
     }
 
-    public static Map<String, Object> notFound(String description) {
-        return Map.of(
-                "error", Map.of(
-                        "code", "NOT_FOUND_ERROR",
-                        "description", description
-                )
-        );
-    }
-
-   
     public static Map<String, Object> custom(String code, String description) {
         return Map.of(
                 "error", Map.of(
@@ -40,4 +56,19 @@ public class ErrorResponse {
                 )
         );
     }
+
+    /**
+     * An error body as JSON bytes, for writing straight to a servlet response.
+     */
+    public static byte[] json(String code, String description) {
+        try {
+            return MAPPER.writeValueAsBytes(custom(code, description));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResponseEntity<byte[]> fixed(HttpStatus status, byte[] body) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 }
@@ -0,0 +1,64 @@
+package com.gateway.util;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs one page of a list query in (created_at DESC, id DESC) order.
+ *
+ * The caller supplies "SELECT ... FROM t WHERE merchant_id = ? [AND ...]";
+ * this appends the cursor predicate, ordering and LIMIT, fetching one row
+ * more than the page to know whether another page exists. The selected
+ * columns must include created_at and id.
+ */
+public final class KeysetPagination {
+
+    /**
+     * One page of items; next_cursor is null on the last page.
+     */
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    public record Page<T>(List<T> items, boolean hasMore, String nextCursor) {}
+
+    private KeysetPagination() {
+    }
+
+    public static <T> Page<T> page(
+            JdbcTemplate jdbcTemplate,
+            String filteredSelect,
+            List<Object> args,
+            PageCursor after,
+            int limit,
+            RowMapper<T> itemMapper
+    ) {
+        StringBuilder sql = new StringBuilder(filteredSelect);
+        List<Object> params = new ArrayList<>(args);
+
+        if (after != null) {
+            // Row comparison, so Postgres can seek straight into the index
+            sql.append(" AND (created_at, id) < (?, ?)");
+            params.add(after.createdAt());
+            params.add(after.id());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(limit + 1);
+
+        List<PageCursor> positions = new ArrayList<>(limit + 1);
+        List<T> items = jdbcTemplate.query(sql.toString(), (rs, i) -> {
+            positions.add(new PageCursor(rs.getObject("created_at", LocalDateTime.class), rs.getString("id")));
+            return itemMapper.mapRow(rs, i);
+        }, params.toArray());
+
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items = items.subList(0, limit);
+        }
+
+        return new Page<>(items, hasMore, hasMore ? positions.get(limit - 1).encode() : null);
+    }
+}
@@ -1,85 +1,230 @@
 package com.gateway.util;
 
 import java.time.YearMonth;
-import java.util.regex.Pattern;
 
+/**
+ * Payment instrument validation used by the payment and checkout endpoints.
+ *
+ * Everything here is hand-rolled over the input characters: no regex and no
+ * cleaned-up copies of the input. A card number is checked for characters,
+ * length, Luhn and network in a single right-to-left pass.
+ */
 public class PaymentValidationUtil {
 
-    // VPA pattern: username@bank
-    private static final Pattern VPA_PATTERN =
-            Pattern.compile("^[a-zA-Z0-9._-]+@[a-zA-Z0-9]+$");
+    private static final int MIN_CARD_DIGITS = 13;
+    private static final int MAX_CARD_DIGITS = 19;
+
+    private static volatile int currentMonthIndex;
+    private static volatile long currentMonthValidUntil;
 
     /* =======================
        UPI VALIDATION
        ======================= */
+
+    // VPA format: username@bank, username is [a-zA-Z0-9._-]+, bank is [a-zA-Z0-9]+
     public static boolean isValidVpa(String vpa) {
-        if (vpa == null || vpa.isBlank()) {
+        if (vpa == null) {
             return false;
         }
-        return VPA_PATTERN.matcher(vpa).matches();
+
+        int at = -1;
+        for (int i = 0; i < vpa.length(); i++) {
+            char c = vpa.charAt(i);
+
+            if (c == '@') {
+                if (at >= 0 || i == 0) return false;
+                at = i;
+            } else if (at < 0) {
+                if (!isAlphanumeric(c) && c != '.' && c != '_' && c != '-') return false;
+            } else if (!isAlphanumeric(c)) {
+                return false;
+            }
+        }
+
+        return at > 0 && at < vpa.length() - 1;
     }
 
     /* =======================
        CARD VALIDATION
        ======================= */
 
-    // Luhn Algorithm
+    /**
+     * Full card check: number (digits, length, Luhn, network), expiry and CVV.
+     * Spaces and hyphens in the number are ignored.
+     */
+    public static CardValidationResult validateCard(String number, String expiryMonth, String expiryYear, String cvv) {
+        if (number == null || expiryMonth == null || expiryYear == null || cvv == null) {
+            return CardValidationResult.MISSING_FIELDS;
+        }
+
+        int digits = 0;
+        int sum = 0;
+        int last4 = 0;
+        int leading = -1;
+        int second = -1;
+
+        for (int i = number.length() - 1; i >= 0; i--) {
+            char c = number.charAt(i);
+            if (c == ' ' || c == '-') continue;
+            if (c < '0' || c > '9') return CardValidationResult.INVALID_CHARACTERS;
+            if (digits == MAX_CARD_DIGITS) return CardValidationResult.INVALID_LENGTH;
+
+            int d = c - '0';
+            if (digits < 4) {
+                last4 += d * POWERS_OF_TEN[digits];
+            }
+
+            // Luhn: double every second digit from the right
+            int luhn = d;
+            if ((digits & 1) == 1) {
+                luhn *= 2;
+                if (luhn > 9) luhn -= 9;
+            }
+            sum += luhn;
+
+            // Walking right to left, the last two digits seen are the first two
+            second = leading;
+            leading = d;
+            digits++;
+        }
+
+        if (digits < MIN_CARD_DIGITS) return CardValidationResult.INVALID_LENGTH;
+        if (sum % 10 != 0) return CardValidationResult.LUHN_CHECK_FAILED;
+
+        int month = parseDigits(expiryMonth, 2);
+        int year = parseDigits(expiryYear, 4);
+        if (month < 1 || month > 12 || year < 0 || (expiryYear.length() != 2 && expiryYear.length() != 4)) {
+            return CardValidationResult.INVALID_EXPIRY;
+        }
+        if (expiryYear.length() == 2) {
+            year += 2000;
+        }
+        if (year * 12 + month - 1 < currentMonthIndex()) {
+            return CardValidationResult.EXPIRED;
+        }
+
+        int cvvLength = cvv.length();
+        if ((cvvLength != 3 && cvvLength != 4) || parseDigits(cvv, 4) < 0) {
+            return CardValidationResult.INVALID_CVV;
+        }
+
+        return new CardValidationResult(
+                CardValidationResult.Reason.VALID,
+                network(leading, second),
+                formatLast4(last4)
+        );
+    }
+
+    // Digits, length and Luhn only
     public static boolean isValidCardNumber(String cardNumber) {
         if (cardNumber == null) return false;
 
-        String cleaned = cardNumber.replaceAll("[\\s-]", "");
-        if (!cleaned.matches("\\d{13,19}")) return false;
-
+        int digits = 0;
         int sum = 0;
-        boolean alternate = false;
 
-        for (int i = cleaned.length() - 1; i >= 0; i--) {
-            int n = cleaned.charAt(i) - '0';
-            if (alternate) {
-                n *= 2;
-                if (n > 9) n -= 9;
+        for (int i = cardNumber.length() - 1; i >= 0; i--) {
+            char c = cardNumber.charAt(i);
+            if (c == ' ' || c == '-') continue;
+            if (c < '0' || c > '9' || digits == MAX_CARD_DIGITS) return false;
+
+            int d = c - '0';
+            if ((digits & 1) == 1) {
+                d *= 2;
+                if (d > 9) d -= 9;
             }
-            sum += n;
-            alternate = !alternate;
+            sum += d;
+            digits++;
         }
-        return sum % 10 == 0;
+
+        return digits >= MIN_CARD_DIGITS && sum % 10 == 0;
     }
 
-    // Card network detection
+    // Card network detection from the leading digits
     public static String detectCardNetwork(String cardNumber) {
-        String cleaned = cardNumber.replaceAll("[\\s-]", "");
+        int leading = -1;
+        int second = -1;
+
+        for (int i = 0; i < cardNumber.length() && second < 0; i++) {
+            char c = cardNumber.charAt(i);
+            if (c == ' ' || c == '-') continue;
+            if (c < '0' || c > '9') break;
+
+            if (leading < 0) {
+                leading = c - '0';
+            } else {
+                second = c - '0';
+            }
+        }
+
+        return network(leading, second);
+    }
 
-        if (cleaned.startsWith("4")) return "visa";
+    // Expiry validation
+    public static boolean isValidExpiry(String month, String year) {
+        if (month == null || year == null) return false;
+
+        int mm = parseDigits(month, 2);
+        int yy = parseDigits(year, 4);
+
+        if (mm < 1 || mm > 12 || yy < 0) return false;
+
+        if (year.length() == 2) {
+            yy += 2000;
+        }
 
-        if (cleaned.matches("^5[1-5].*")) return "mastercard";
+        return yy * 12 + mm - 1 >= currentMonthIndex();
+    }
 
-        if (cleaned.startsWith("34") || cleaned.startsWith("37")) return "amex";
+    /* =======================
+       HELPERS
+       ======================= */
 
-        if (cleaned.startsWith("60") ||
-            cleaned.startsWith("65") ||
-            cleaned.matches("^8[1-9].*")) return "rupay";
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1000};
 
+    private static String network(int leading, int second) {
+        if (leading == 4) return "visa";
+        if (leading == 5 && second >= 1 && second <= 5) return "mastercard";
+        if (leading == 3 && (second == 4 || second == 7)) return "amex";
+        if ((leading == 6 && (second == 0 || second == 5))
+                || (leading == 8 && second >= 1)) return "rupay";
         return "unknown";
     }
 
-    // Expiry validation
-    public static boolean isValidExpiry(String month, String year) {
-        try {
-            int mm = Integer.parseInt(month);
-            int yy = Integer.parseInt(year);
+    private static String formatLast4(int last4) {
+        char[] out = new char[4];
+        for (int i = 3; i >= 0; i--) {
+            out[i] = (char) ('0' + last4 % 10);
+            last4 /= 10;
+        }
+        return new String(out);
+    }
 
-            if (mm < 1 || mm > 12) return false;
+    // Returns the value of an all-digit string of 1..maxLength characters, else -1
+    private static int parseDigits(String s, int maxLength) {
+        int length = s.length();
+        if (length == 0 || length > maxLength) return -1;
 
-            if (year.length() == 2) {
-                yy += 2000;
-            }
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
 
-            YearMonth expiry = YearMonth.of(yy, mm);
-            YearMonth now = YearMonth.now();
+    private static boolean isAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
 
-            return !expiry.isBefore(now);
-        } catch (Exception e) {
-            return false;
+    // year * 12 + (month - 1) for the current month, refreshed once a minute
+    private static int currentMonthIndex() {
+        long now = System.currentTimeMillis();
+        if (now >= currentMonthValidUntil) {
+            YearMonth current = YearMonth.now();
+            currentMonthIndex = current.getYear() * 12 + current.getMonthValue() - 1;
+            currentMonthValidUntil = now + 60_000;
         }
+        return currentMonthIndex;
     }
 }
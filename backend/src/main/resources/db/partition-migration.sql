@@ -0,0 +1,94 @@
+-- Converts orders and payments tables created before monthly partitioning
+-- (see schema.sql) into partitioned tables. All existing rows stay where
+-- they are and become one partition per table, orders_legacy and
+-- payments_legacy, covering everything before next month; existing indexes
+-- are reused, only the new primary keys are built.
+--
+-- Run once with the gateway stopped, then start it and PartitionMaintenance
+-- adds the monthly partitions:
+--
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f partition-migration.sql
+--
+-- With gateway.partitions.retention-months set, the legacy partitions are
+-- archived like any other once their range is old enough.
+
+BEGIN;
+
+SELECT to_char(date_trunc('month', LOCALTIMESTAMP) + INTERVAL '1 month', 'YYYY-MM-DD') AS cutoff \gset
+
+-- Constraints a partition of the new tables cannot keep
+ALTER TABLE payments DROP CONSTRAINT IF EXISTS fk_payments_order;
+ALTER TABLE payments DROP CONSTRAINT payments_pkey;
+ALTER TABLE orders DROP CONSTRAINT orders_pkey;
+ALTER TABLE payments DROP CONSTRAINT fk_payments_merchant;
+ALTER TABLE orders DROP CONSTRAINT fk_orders_merchant;
+ALTER TABLE payments ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE orders ALTER COLUMN created_at SET NOT NULL;
+
+ALTER TABLE payments RENAME TO payments_legacy;
+ALTER TABLE orders RENAME TO orders_legacy;
+
+-- Free the index names; creating the same indexes on the new tables below
+-- adopts these instead of building new ones
+ALTER INDEX IF EXISTS idx_orders_merchant_created RENAME TO orders_legacy_merchant_created;
+ALTER INDEX IF EXISTS idx_orders_merchant_status_created RENAME TO orders_legacy_merchant_status_created;
+ALTER INDEX IF EXISTS idx_payments_order_id RENAME TO payments_legacy_order_id;
+ALTER INDEX IF EXISTS idx_payments_merchant_created RENAME TO payments_legacy_merchant_created;
+ALTER INDEX IF EXISTS idx_payments_merchant_status_created RENAME TO payments_legacy_merchant_status_created;
+ALTER INDEX IF EXISTS idx_payments_processing RENAME TO payments_legacy_processing;
+DROP INDEX IF EXISTS idx_payments_status;
+DROP INDEX IF EXISTS idx_orders_merchant_id;
+
+-- Same definitions as schema.sql
+CREATE TABLE orders (
+    id VARCHAR(64) NOT NULL,
+    merchant_id UUID NOT NULL,
+    amount INTEGER NOT NULL CONSTRAINT orders_amount_check CHECK (amount >= 100),
+    currency VARCHAR(3) DEFAULT 'INR',
+    receipt VARCHAR(255),
+    notes JSONB,
+    status VARCHAR(20) DEFAULT 'created',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_orders_merchant FOREIGN KEY (merchant_id)
+        REFERENCES merchants(id)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE payments (
+    id VARCHAR(64) NOT NULL,
+    order_id VARCHAR(64) NOT NULL,
+    merchant_id UUID NOT NULL,
+    amount INTEGER NOT NULL,
+    currency VARCHAR(3) DEFAULT 'INR',
+    method VARCHAR(20) NOT NULL,
+    status VARCHAR(20) DEFAULT 'processing',
+    vpa VARCHAR(255),
+    card_network VARCHAR(20),
+    card_last4 VARCHAR(4),
+    error_code VARCHAR(50),
+    error_description TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_payments_merchant FOREIGN KEY (merchant_id)
+        REFERENCES merchants(id)
+) PARTITION BY RANGE (created_at);
+
+ALTER TABLE orders ATTACH PARTITION orders_legacy FOR VALUES FROM (MINVALUE) TO (:'cutoff');
+ALTER TABLE payments ATTACH PARTITION payments_legacy FOR VALUES FROM (MINVALUE) TO (:'cutoff');
+
+CREATE INDEX idx_orders_merchant_created
+    ON orders(merchant_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_merchant_status_created
+    ON orders(merchant_id, status, created_at DESC, id DESC);
+CREATE INDEX idx_payments_order_id ON payments(order_id);
+CREATE INDEX idx_payments_merchant_created
+    ON payments(merchant_id, created_at DESC, id DESC);
+CREATE INDEX idx_payments_merchant_status_created
+    ON payments(merchant_id, status, created_at DESC, id DESC);
+CREATE INDEX idx_payments_processing
+    ON payments(created_at)
+    WHERE status = 'processing';
+
+COMMIT;
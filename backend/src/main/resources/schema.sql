@@ -12,22 +12,39 @@ CREATE TABLE IF NOT EXISTS merchants (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Per-merchant rate limit; NULL uses gateway.rate-limit defaults
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS rate_limit_per_second INTEGER;
+ALTER TABLE merchants ADD COLUMN IF NOT EXISTS rate_limit_burst INTEGER;
+
+-- orders and payments are range-partitioned by month on created_at;
+-- PartitionMaintenance creates the monthly partitions ahead of time and
+-- archives old ones. A partitioned table's primary key must include the
+-- partition key, so ids are only unique per partition as far as the
+-- database knows (IdGenerator makes them globally unique), and payments can
+-- no longer reference orders with a foreign key. Lookups by id alone would
+-- probe each partition's primary key index, so the hot ones (status update,
+-- payment insert, GET by id, status:batch, checkout status) also bound
+-- created_at by the time encoded in the id; see CreatedAtRange.
+--
+-- CREATE TABLE IF NOT EXISTS leaves tables created before partitioning
+-- as they are; db/partition-migration.sql converts them.
 CREATE TABLE IF NOT EXISTS orders (
-    id VARCHAR(64) PRIMARY KEY,
+    id VARCHAR(64) NOT NULL,
     merchant_id UUID NOT NULL,
-    amount INTEGER NOT NULL CHECK (amount >= 100),
+    amount INTEGER NOT NULL CONSTRAINT orders_amount_check CHECK (amount >= 100),
     currency VARCHAR(3) DEFAULT 'INR',
     receipt VARCHAR(255),
     notes JSONB,
     status VARCHAR(20) DEFAULT 'created',
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at),
     CONSTRAINT fk_orders_merchant FOREIGN KEY (merchant_id)
         REFERENCES merchants(id)
-);
+) PARTITION BY RANGE (created_at);
 
 CREATE TABLE IF NOT EXISTS payments (
-    id VARCHAR(64) PRIMARY KEY,
+    id VARCHAR(64) NOT NULL,
     order_id VARCHAR(64) NOT NULL,
     merchant_id UUID NOT NULL,
     amount INTEGER NOT NULL,
@@ -39,14 +56,89 @@ CREATE TABLE IF NOT EXISTS payments (
     card_last4 VARCHAR(4),
     error_code VARCHAR(50),
     error_description TEXT,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    CONSTRAINT fk_payments_order FOREIGN KEY (order_id)
-        REFERENCES orders(id),
+    PRIMARY KEY (id, created_at),
     CONSTRAINT fk_payments_merchant FOREIGN KEY (merchant_id)
         REFERENCES merchants(id)
-);
+) PARTITION BY RANGE (created_at);
 
-CREATE INDEX IF NOT EXISTS idx_orders_merchant_id ON orders(merchant_id);
 CREATE INDEX IF NOT EXISTS idx_payments_order_id ON payments(order_id);
-CREATE INDEX IF NOT EXISTS idx_payments_status ON payments(status);
+
+-- Only in-flight payments are ever looked up by status alone, so the index
+-- covers just those and stays as small as the processing backlog
+DROP INDEX IF EXISTS idx_payments_status;
+CREATE INDEX IF NOT EXISTS idx_payments_processing
+    ON payments(created_at)
+    WHERE status = 'processing';
+
+-- Keyset pagination for the list endpoints: (created_at, id) < cursor
+-- within one merchant is a single index range scan at any depth.
+-- idx_orders_merchant_id is a prefix of the orders index, so it goes.
+DROP INDEX IF EXISTS idx_orders_merchant_id;
+CREATE INDEX IF NOT EXISTS idx_orders_merchant_created
+    ON orders(merchant_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_merchant_status_created
+    ON orders(merchant_id, status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_payments_merchant_created
+    ON payments(merchant_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_payments_merchant_status_created
+    ON payments(merchant_id, status, created_at DESC, id DESC);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    scope VARCHAR(100) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    claim_token UUID,
+    response_status INTEGER,
+    response_body TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (scope, idempotency_key)
+);
+
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS claim_token UUID;
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
+
+CREATE TABLE IF NOT EXISTS merchant_stats (
+    merchant_id UUID PRIMARY KEY,
+    total_transactions BIGINT NOT NULL DEFAULT 0,
+    successful_transactions BIGINT NOT NULL DEFAULT 0,
+    failed_transactions BIGINT NOT NULL DEFAULT 0,
+    successful_amount BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_merchant_stats_merchant FOREIGN KEY (merchant_id)
+        REFERENCES merchants(id)
+);
+
+-- Webhook outbox: rows are queued in the same transaction as the payment
+-- status change and claimed by WebhookDispatcher. Claimed rows are
+-- 'delivering' with next_attempt_at as the claim lease, so rows left by a
+-- crashed node become due again.
+CREATE TABLE IF NOT EXISTS webhook_deliveries (
+    id VARCHAR(64) PRIMARY KEY,
+    merchant_id UUID NOT NULL,
+    event VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'pending',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_response_code INTEGER,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    delivered_at TIMESTAMP,
+    CONSTRAINT fk_webhook_deliveries_merchant FOREIGN KEY (merchant_id)
+        REFERENCES merchants(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_webhook_deliveries_due
+    ON webhook_deliveries(next_attempt_at)
+    WHERE status IN ('pending', 'delivering');
+
+-- Finished rows are deleted after gateway.webhooks.retention
+CREATE INDEX IF NOT EXISTS idx_webhook_deliveries_finished
+    ON webhook_deliveries(updated_at)
+    WHERE status IN ('delivered', 'dead');
@@ -0,0 +1,149 @@
+package com.gateway.acquirer;
+
+import com.gateway.acquirer.CircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    // 50% threshold, window 10, at least 4 calls, open 30s, 2 trial calls
+    private static final AcquirerProperties.CircuitBreaker SETTINGS =
+            new AcquirerProperties.CircuitBreaker(50, 10, 4, Duration.ofSeconds(30), 2);
+
+    private long now;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        breaker = new CircuitBreaker("test", SETTINGS, () -> now);
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        for (int i = 0; i < 3; i++) {
+            breaker.record(breaker.tryAcquire(), false);
+        }
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void staysClosedBelowFailureRate() {
+        for (int i = 0; i < 10; i++) {
+            breaker.record(breaker.tryAcquire(), i % 3 != 2); // a third fail
+        }
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void opensAtFailureRateAndRejects() {
+        open();
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void goesHalfOpenAfterOpenDurationAndLimitsTrials() {
+        open();
+        now += Duration.ofSeconds(30).toNanos();
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(first).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(second).isNotEqualTo(CircuitBreaker.REJECTED);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void closesWhenTrialsSucceed() {
+        open();
+        now += Duration.ofSeconds(30).toNanos();
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        breaker.record(first, true);
+        breaker.record(second, true);
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isNotEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void reopensWhenTrialsFail() {
+        open();
+        now += Duration.ofSeconds(30).toNanos();
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        breaker.record(first, false);
+        breaker.record(second, false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void ignoresAnswersToCallsAdmittedWhileClosed() {
+        long slowCall = breaker.tryAcquire();
+        open();
+        now += Duration.ofSeconds(30).toNanos();
+
+        long trial = breaker.tryAcquire();
+        // The slow call made before the circuit opened answers during the trial
+        breaker.record(slowCall, true);
+        breaker.record(slowCall, true);
+
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+
+        breaker.record(trial, false);
+        breaker.record(breaker.tryAcquire(), false);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void ignoresLateTrialAnswersAfterClosing() {
+        open();
+        now += Duration.ofSeconds(30).toNanos();
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        breaker.record(first, true);
+        breaker.record(second, true);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        // Closed generation starts with an empty window
+        breaker.record(first, false);
+        for (int i = 0; i < 3; i++) {
+            breaker.record(breaker.tryAcquire(), false);
+        }
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void ignoresAnswersWhileOpen() {
+        long late = breaker.tryAcquire();
+        open();
+
+        breaker.record(late, true);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.record(breaker.tryAcquire(), false);
+        }
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+}
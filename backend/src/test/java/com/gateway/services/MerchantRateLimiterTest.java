@@ -0,0 +1,162 @@
+package com.gateway.services;
+
+import com.gateway.models.Merchant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MerchantRateLimiterTest {
+
+    private static final long INTERVAL = Duration.ofMillis(100).toNanos(); // 10 per second
+
+    private long now;
+    private SimpleMeterRegistry registry;
+    private MerchantRateLimiter limiter;
+    private Merchant merchant;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000_000_000L;
+        registry = new SimpleMeterRegistry();
+        // Defaults: 10 per second, bursts of 5
+        limiter = new MerchantRateLimiter(registry, true, 10, 5, () -> now);
+        merchant = new Merchant();
+        merchant.setId(UUID.randomUUID());
+    }
+
+    @Test
+    void admitsBurstThenRejectsUntilNextToken() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(merchant)).isZero();
+        }
+
+        assertThat(limiter.tryAcquire(merchant)).isEqualTo(INTERVAL);
+        assertThat(throttled()).isEqualTo(1);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        exhaust();
+
+        now += INTERVAL;
+        assertThat(limiter.tryAcquire(merchant)).isZero();
+        assertThat(limiter.tryAcquire(merchant)).isEqualTo(INTERVAL);
+
+        now += INTERVAL / 2;
+        assertThat(limiter.tryAcquire(merchant)).isEqualTo(INTERVAL / 2);
+    }
+
+    @Test
+    void refillStopsAtBurst() {
+        exhaust();
+
+        now += Duration.ofSeconds(10).toNanos();
+
+        assertThat(admitted(20)).isEqualTo(5);
+    }
+
+    @Test
+    void usesMerchantLimits() {
+        merchant.setRateLimitPerSecond(1);
+        merchant.setRateLimitBurst(2);
+
+        assertThat(admitted(5)).isEqualTo(2);
+        assertThat(limiter.tryAcquire(merchant)).isEqualTo(Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    void ignoresMerchantLimitsBelowOne() {
+        merchant.setRateLimitPerSecond(0);
+        merchant.setRateLimitBurst(-1);
+
+        assertThat(admitted(20)).isEqualTo(5);
+        assertThat(limiter.tryAcquire(merchant)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void rejectsDefaultsBelowOne() {
+        assertThatThrownBy(() -> new MerchantRateLimiter(registry, true, 0, 5, () -> now))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new MerchantRateLimiter(registry, true, 10, 0, () -> now))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void startsOverWhenLimitsChange() {
+        exhaust();
+
+        merchant.setRateLimitBurst(3);
+
+        assertThat(admitted(10)).isEqualTo(3);
+    }
+
+    @Test
+    void concurrentRequestsAdmitExactlyTheBurst() throws InterruptedException {
+        merchant.setRateLimitBurst(1000);
+        int threads = 8;
+        int perThread = 1000;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (limiter.tryAcquire(merchant) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // The clock does not move, so only the burst gets through
+        assertThat(admitted.get()).isEqualTo(1000);
+        assertThat(throttled()).isEqualTo(threads * perThread - 1000);
+    }
+
+    @Test
+    void admitsEverythingWhenDisabled() {
+        limiter = new MerchantRateLimiter(registry, false, 10, 5, () -> now);
+
+        assertThat(admitted(100)).isEqualTo(100);
+    }
+
+    private void exhaust() {
+        assertThat(admitted(5)).isEqualTo(5);
+    }
+
+    private int admitted(int requests) {
+        int admitted = 0;
+        for (int i = 0; i < requests; i++) {
+            if (limiter.tryAcquire(merchant) == 0) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    private double throttled() {
+        return registry.find("gateway.ratelimit.throttled").counter() == null
+                ? 0
+                : registry.find("gateway.ratelimit.throttled").counter().count();
+    }
+}
@@ -0,0 +1,208 @@
+package com.gateway.services;
+
+import com.gateway.models.StatusTransition;
+import com.gateway.services.PaymentMetrics.Flow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PaymentStatusWriterTest {
+
+    private static final Flow FLOW = Flow.of(PaymentMetrics.MERCHANT_API, "upi");
+    private static final UUID MERCHANT = UUID.randomUUID();
+    private static final long LONG_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final IdGenerator ids = new IdGenerator();
+    private final List<Object> published = new CopyOnWriteArrayList<>();
+    private WebhookDispatcher webhooks;
+    private PaymentStatusWriter writer;
+
+    @BeforeAll
+    static void startPostgres() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        // The columns the writer touches, as in schema.sql
+        jdbcTemplate.execute("""
+                CREATE TABLE payments (
+                    id VARCHAR(64) NOT NULL,
+                    status VARCHAR(20) DEFAULT 'processing',
+                    error_code VARCHAR(50),
+                    error_description TEXT,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (id, created_at)
+                )
+                """);
+    }
+
+    @AfterAll
+    static void stopPostgres() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE payments");
+        webhooks = mock(WebhookDispatcher.class);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void flushesWhenBatchIsFull() throws Exception {
+        writer = writer(3, LONG_INTERVAL_MS, true);
+
+        List<CompletableFuture<Void>> full = submitSuccess(3);
+        CompletableFuture.allOf(full.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        List<CompletableFuture<Void>> partial = submitSuccess(2);
+        Thread.sleep(300);
+
+        assertThat(partial).noneMatch(CompletableFuture::isDone);
+        assertThat(count("success")).isEqualTo(3);
+        verify(webhooks, times(1)).enqueue(anyList());
+    }
+
+    @Test
+    void flushesPartialBatchAfterInterval() throws Exception {
+        writer = writer(100, 50, true);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> submitted = submitSuccess(2);
+        CompletableFuture.allOf(submitted.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(40));
+        assertThat(count("success")).isEqualTo(2);
+    }
+
+    @Test
+    void secondTransitionOfAPaymentIsANoOp() throws Exception {
+        writer = writer(1, LONG_INTERVAL_MS, true);
+        String id = insertProcessing();
+        StatusTransition success = StatusTransition.success(id, MERCHANT, 100);
+
+        writer.submit(success, FLOW).get(5, TimeUnit.SECONDS);
+        writer.submit(StatusTransition.failed(id, MERCHANT, 100, "BANK_ERROR", "Declined"), FLOW)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(status(id)).isEqualTo("success");
+        assertThat(published).containsExactly(success);
+        verify(webhooks, times(1)).enqueue(List.of(success));
+    }
+
+    @Test
+    void writesRowByRowWhenBatchFails() throws Exception {
+        writer = writer(3, LONG_INTERVAL_MS, true);
+        String good1 = insertProcessing();
+        String bad = insertProcessing();
+        String good2 = insertProcessing();
+
+        // Longer than status VARCHAR(20): fails the whole batch, and then
+        // only its own row
+        CompletableFuture<Void> first = writer.submit(StatusTransition.success(good1, MERCHANT, 100), FLOW);
+        CompletableFuture<Void> failing = writer.submit(
+                new StatusTransition(bad, MERCHANT, 100, "x".repeat(30), null, null), FLOW);
+        CompletableFuture<Void> third = writer.submit(StatusTransition.success(good2, MERCHANT, 100), FLOW);
+
+        first.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RuntimeException.class);
+
+        assertThat(status(good1)).isEqualTo("success");
+        assertThat(status(good2)).isEqualTo("success");
+        assertThat(status(bad)).isEqualTo("processing");
+        assertThat(published).hasSize(2);
+    }
+
+    @Test
+    void durableConfirmationWaitsForCommit() throws Exception {
+        writer = writer(1, LONG_INTERVAL_MS, true);
+        String id = insertProcessing();
+
+        CompletableFuture<Void> confirmed;
+        try (Connection locker = postgres.getPostgresDatabase().getConnection()) {
+            // Hold the row so the writer's UPDATE cannot commit yet
+            locker.setAutoCommit(false);
+            locker.createStatement().execute("SELECT 1 FROM payments WHERE id = '" + id + "' FOR UPDATE");
+
+            confirmed = writer.submit(StatusTransition.success(id, MERCHANT, 100), FLOW);
+            Thread.sleep(300);
+
+            assertThat(confirmed).isNotDone();
+            locker.commit();
+        }
+
+        confirmed.get(5, TimeUnit.SECONDS);
+        assertThat(status(id)).isEqualTo("success");
+    }
+
+    @Test
+    void nonDurableConfirmationIsImmediate() throws Exception {
+        writer = writer(100, LONG_INTERVAL_MS, false);
+        String id = insertProcessing();
+
+        CompletableFuture<Void> confirmed = writer.submit(StatusTransition.success(id, MERCHANT, 100), FLOW);
+
+        assertThat(confirmed).isDone();
+        assertThat(status(id)).isEqualTo("processing");
+    }
+
+    private PaymentStatusWriter writer(int batchSize, long flushIntervalMs, boolean durable) {
+        return new PaymentStatusWriter(jdbcTemplate,
+                new DataSourceTransactionManager(postgres.getPostgresDatabase()),
+                published::add, webhooks, new PaymentMetrics(new SimpleMeterRegistry()),
+                batchSize, flushIntervalMs, durable, 3, Duration.ofMillis(10));
+    }
+
+    private List<CompletableFuture<Void>> submitSuccess(int payments) {
+        List<CompletableFuture<Void>> submitted = new ArrayList<>();
+        for (int i = 0; i < payments; i++) {
+            submitted.add(writer.submit(StatusTransition.success(insertProcessing(), MERCHANT, 100), FLOW));
+        }
+        return submitted;
+    }
+
+    private String insertProcessing() {
+        String id = ids.next("pay_");
+        jdbcTemplate.update("INSERT INTO payments (id) VALUES (?)", id);
+        return id;
+    }
+
+    private String status(String id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM payments WHERE id = ?", String.class, id);
+    }
+
+    private int count(String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payments WHERE status = ?", Integer.class, status);
+    }
+}
@@ -0,0 +1,236 @@
+package com.gateway.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookDispatcherTest {
+
+    private static final UUID MERCHANT = UUID.randomUUID();
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final IdGenerator ids = new IdGenerator();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final List<WebhookDispatcher> dispatchers = new CopyOnWriteArrayList<>();
+    private ExecutorService receiverThreads;
+    private HttpServer receiver;
+    private volatile Receiver answer;
+
+    @BeforeAll
+    static void startPostgres() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        // The columns the dispatcher touches, as in schema.sql
+        jdbcTemplate.execute("""
+                CREATE TABLE merchants (
+                    id UUID PRIMARY KEY,
+                    api_secret VARCHAR(64) NOT NULL,
+                    webhook_url TEXT
+                );
+                CREATE TABLE webhook_deliveries (
+                    id VARCHAR(64) PRIMARY KEY,
+                    merchant_id UUID NOT NULL REFERENCES merchants(id),
+                    event VARCHAR(50) NOT NULL,
+                    payload TEXT NOT NULL,
+                    status VARCHAR(20) NOT NULL DEFAULT 'pending',
+                    attempts INTEGER NOT NULL DEFAULT 0,
+                    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    last_response_code INTEGER,
+                    last_error TEXT,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    delivered_at TIMESTAMP
+                )
+                """);
+    }
+
+    @AfterAll
+    static void stopPostgres() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        receiverThreads = Executors.newCachedThreadPool();
+        receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/webhook", exchange -> {
+            received.add(exchange.getRequestHeaders().getFirst("X-Webhook-Id"));
+            int status;
+            try {
+                status = answer.status(exchange);
+            } catch (InterruptedException e) {
+                status = 503;
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        receiver.setExecutor(receiverThreads);
+        receiver.start();
+
+        jdbcTemplate.execute("TRUNCATE webhook_deliveries, merchants");
+        jdbcTemplate.update("INSERT INTO merchants (id, api_secret, webhook_url) VALUES (?, 'secret', ?)",
+                MERCHANT, "http://localhost:" + receiver.getAddress().getPort() + "/webhook");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatchers.forEach(WebhookDispatcher::shutdown);
+        receiver.stop(0);
+        receiverThreads.shutdownNow();
+    }
+
+    @Test
+    void lateResultOfATakenOverAttemptIsDropped() throws Exception {
+        CountDownLatch firstArrived = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        answer = exchange -> {
+            if (received.size() > 1) {
+                return 200;
+            }
+            firstArrived.countDown();
+            releaseFirst.await();
+            return 500;
+        };
+        String id = insertDue();
+
+        dispatcher(8, Duration.ofSeconds(5)).poll();
+        assertThat(firstArrived.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // The first claimer hangs past its lease; another node claims the
+        // row and delivers it
+        jdbcTemplate.update("UPDATE webhook_deliveries SET next_attempt_at = CURRENT_TIMESTAMP - INTERVAL '1 second'");
+        dispatcher(8, Duration.ofSeconds(5)).poll();
+        Map<String, Object> delivered = await(id, row -> "delivered".equals(row.get("status")));
+        assertThat(delivered.get("attempts")).isEqualTo(2);
+
+        // The first attempt's 500 arrives late and must not reopen the row
+        releaseFirst.countDown();
+        Thread.sleep(300);
+
+        Map<String, Object> row = row(id);
+        assertThat(row.get("status")).isEqualTo("delivered");
+        assertThat(row.get("attempts")).isEqualTo(2);
+        assertThat(row.get("last_response_code")).isEqualTo(200);
+        assertThat(received).containsExactly(id, id);
+    }
+
+    @Test
+    void failedAttemptsBackOffAndThenDie() throws Exception {
+        answer = exchange -> 500;
+        String id = insertDue();
+        WebhookDispatcher dispatcher = dispatcher(2, Duration.ofSeconds(1));
+
+        dispatcher.poll();
+        Map<String, Object> retrying = await(id, row -> "pending".equals(row.get("status")));
+        assertThat(retrying.get("attempts")).isEqualTo(1);
+        assertThat(retrying.get("last_response_code")).isEqualTo(500);
+        // next_attempt_at and updated_at are set by the same statement
+        long delayMs = jdbcTemplate.queryForObject("""
+                SELECT (EXTRACT(EPOCH FROM next_attempt_at - updated_at) * 1000)::bigint
+                FROM webhook_deliveries WHERE id = ?
+                """, Long.class, id);
+        assertThat(delayMs).isBetween(800L, 1200L);
+
+        // Not due yet
+        dispatcher.poll();
+        Thread.sleep(300);
+        assertThat(received).hasSize(1);
+
+        jdbcTemplate.update("UPDATE webhook_deliveries SET next_attempt_at = CURRENT_TIMESTAMP");
+        dispatcher.poll();
+        Map<String, Object> dead = await(id, row -> "dead".equals(row.get("status")));
+        assertThat(dead.get("attempts")).isEqualTo(2);
+        assertThat(received).hasSize(2);
+    }
+
+    @Test
+    void backoffDoublesUpToTheCapWithJitter() {
+        WebhookDispatcher dispatcher = dispatcher(8, Duration.ofSeconds(5));
+
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            long base = Math.min(5_000L << Math.min(attempt - 1, 30), Duration.ofHours(1).toMillis());
+            for (int i = 0; i < 100; i++) {
+                assertThat(dispatcher.backoff(attempt).toMillis())
+                        .isBetween((long) (base * 0.8), (long) (base * 1.2));
+            }
+        }
+    }
+
+    @Test
+    void deletesFinishedDeliveriesAfterRetention() {
+        String oldDelivered = insert("delivered", "8 days");
+        String oldDead = insert("dead", "8 days");
+        String oldPending = insert("pending", "8 days");
+        String recentDelivered = insert("delivered", "1 day");
+
+        dispatcher(8, Duration.ofSeconds(5)).deleteExpired();
+
+        List<String> left = jdbcTemplate.queryForList("SELECT id FROM webhook_deliveries", String.class);
+        assertThat(left).containsExactlyInAnyOrder(oldPending, recentDelivered)
+                .doesNotContain(oldDelivered, oldDead);
+    }
+
+    private WebhookDispatcher dispatcher(int maxAttempts, Duration initialBackoff) {
+        WebhookDispatcher dispatcher = new WebhookDispatcher(jdbcTemplate, ids, true, 100, 1000, 4,
+                maxAttempts, initialBackoff, Duration.ofHours(1), Duration.ofSeconds(5),
+                Duration.ofSeconds(10), Duration.ofDays(7));
+        dispatchers.add(dispatcher);
+        return dispatcher;
+    }
+
+    private String insertDue() {
+        return insert("pending", "0 seconds");
+    }
+
+    private String insert(String status, String age) {
+        String id = ids.next("whd_");
+        jdbcTemplate.update("""
+                INSERT INTO webhook_deliveries (id, merchant_id, event, payload, status, next_attempt_at, updated_at)
+                VALUES (?, ?, 'payment.success', '{}', ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP - ?::interval)
+                """, id, MERCHANT, status, age);
+        return id;
+    }
+
+    private Map<String, Object> row(String id) {
+        return jdbcTemplate.queryForMap("SELECT * FROM webhook_deliveries WHERE id = ?", id);
+    }
+
+    private Map<String, Object> await(String id, Predicate<Map<String, Object>> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Map<String, Object> row = row(id);
+        while (!condition.test(row) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            row = row(id);
+        }
+        assertThat(row).matches(condition);
+        return row;
+    }
+
+    @FunctionalInterface
+    private interface Receiver {
+        int status(HttpExchange exchange) throws InterruptedException;
+    }
+}
@@ -0,0 +1,282 @@
+package com.gateway.util;
+
+import com.gateway.util.CardValidationResult.Reason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentValidationUtilTest {
+
+    private static final YearMonth NOW = YearMonth.now();
+    private static final String NEXT_YEAR = Integer.toString(NOW.getYear() + 1);
+    private static final String VISA = "4111111111111111";
+
+    // ---- card number ----
+
+    @ParameterizedTest
+    @ValueSource(strings = {"4111 1111 1111 1111", "4111-1111-1111-1111", "4111 1111-1111 1111", " 4111111111111111 "})
+    void ignoresSpacesAndDashesInTheNumber(String number) {
+        CardValidationResult result = validate(number);
+
+        assertThat(result.valid()).isTrue();
+        assertThat(result.network()).isEqualTo("visa");
+        assertThat(result.last4()).isEqualTo("1111");
+        assertThat(PaymentValidationUtil.isValidCardNumber(number)).isTrue();
+    }
+
+    @Test
+    void acceptsThirteenToNineteenDigits() {
+        String thirteen = withCheckDigit("4".repeat(12));
+        String nineteen = withCheckDigit("4".repeat(18));
+
+        assertThat(validate(thirteen).valid()).isTrue();
+        assertThat(validate(nineteen).valid()).isTrue();
+        assertThat(PaymentValidationUtil.isValidCardNumber(thirteen)).isTrue();
+        assertThat(PaymentValidationUtil.isValidCardNumber(nineteen)).isTrue();
+    }
+
+    @Test
+    void rejectsTwelveAndTwentyDigits() {
+        String twelve = withCheckDigit("4".repeat(11));
+        String twenty = withCheckDigit("4".repeat(19));
+
+        assertThat(validate(twelve).reason()).isEqualTo(Reason.INVALID_LENGTH);
+        assertThat(validate(twenty).reason()).isEqualTo(Reason.INVALID_LENGTH);
+        assertThat(PaymentValidationUtil.isValidCardNumber(twelve)).isFalse();
+        assertThat(PaymentValidationUtil.isValidCardNumber(twenty)).isFalse();
+    }
+
+    @Test
+    void rejectsLuhnFailure() {
+        assertThat(validate("4111111111111112").reason()).isEqualTo(Reason.LUHN_CHECK_FAILED);
+        assertThat(PaymentValidationUtil.isValidCardNumber("4111111111111112")).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"4111a11111111111", "4111.1111.1111.1111", "4111_1111_1111_1111"})
+    void rejectsOtherCharacters(String number) {
+        assertThat(validate(number).reason()).isEqualTo(Reason.INVALID_CHARACTERS);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "4,  visa",
+            "50, unknown",
+            "51, mastercard",
+            "55, mastercard",
+            "56, unknown",
+            "33, unknown",
+            "34, amex",
+            "35, unknown",
+            "37, amex",
+            "38, unknown",
+            "59, unknown",
+            "60, rupay",
+            "61, unknown",
+            "64, unknown",
+            "65, rupay",
+            "66, unknown",
+            "80, unknown",
+            "81, rupay",
+            "89, rupay",
+            "90, unknown"
+    })
+    void detectsNetworkFromLeadingDigits(String prefix, String network) {
+        String number = withCheckDigit(prefix + "0".repeat(15 - prefix.length()));
+
+        assertThat(validate(number).network()).isEqualTo(network);
+        assertThat(PaymentValidationUtil.detectCardNetwork(number)).isEqualTo(network);
+    }
+
+    // ---- expiry and CVV ----
+
+    @Test
+    void acceptsTwoAndFourDigitYears() {
+        String twoDigits = NEXT_YEAR.substring(2);
+
+        assertThat(PaymentValidationUtil.validateCard(VISA, "01", twoDigits, "123").valid()).isTrue();
+        assertThat(PaymentValidationUtil.validateCard(VISA, "01", NEXT_YEAR, "123").valid()).isTrue();
+        assertThat(PaymentValidationUtil.validateCard(VISA, "1", NEXT_YEAR, "123").valid()).isTrue();
+        assertThat(PaymentValidationUtil.isValidExpiry("01", twoDigits)).isTrue();
+    }
+
+    @Test
+    void currentMonthIsNotExpired() {
+        CardValidationResult result = PaymentValidationUtil.validateCard(VISA,
+                Integer.toString(NOW.getMonthValue()), Integer.toString(NOW.getYear()), "123");
+
+        assertThat(result.valid()).isTrue();
+    }
+
+    @Test
+    void lastMonthIsExpiredCard() {
+        YearMonth last = NOW.minusMonths(1);
+        CardValidationResult result = PaymentValidationUtil.validateCard(VISA,
+                Integer.toString(last.getMonthValue()), Integer.toString(last.getYear()), "123");
+
+        assertThat(result.reason()).isEqualTo(Reason.EXPIRED);
+        assertThat(ErrorResponse.cardError(result)).isSameAs(ErrorResponse.EXPIRED_CARD);
+        assertThat(ErrorResponse.cardError(validate("4111111111111112"))).isSameAs(ErrorResponse.INVALID_CARD);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"00, 2099", "13, 2099", "1a, 2099", "'', 2099", "012, 2099", "12, 209", "12, 20999", "12, 2o99"})
+    void rejectsMalformedExpiry(String month, String year) {
+        assertThat(PaymentValidationUtil.validateCard(VISA, month, year, "123").reason())
+                .isEqualTo(Reason.INVALID_EXPIRY);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "12", "12345", "12a", "1 3"})
+    void rejectsMalformedCvv(String cvv) {
+        assertThat(PaymentValidationUtil.validateCard(VISA, "12", "2099", cvv).reason())
+                .isEqualTo(Reason.INVALID_CVV);
+    }
+
+    @Test
+    void acceptsThreeAndFourDigitCvv() {
+        assertThat(PaymentValidationUtil.validateCard(VISA, "12", "2099", "123").valid()).isTrue();
+        assertThat(PaymentValidationUtil.validateCard(VISA, "12", "2099", "1234").valid()).isTrue();
+    }
+
+    @Test
+    void reportsMissingFields() {
+        assertThat(PaymentValidationUtil.validateCard(null, "12", "2099", "123").reason())
+                .isEqualTo(Reason.MISSING_FIELDS);
+        assertThat(PaymentValidationUtil.validateCard(VISA, "12", "2099", null).reason())
+                .isEqualTo(Reason.MISSING_FIELDS);
+    }
+
+    // ---- VPA ----
+
+    @ParameterizedTest
+    @ValueSource(strings = {"user@paytm", "a@b", "first.last@okicici", "user_name-1@ybl", "._-@bank9", "USER@OKSBI"})
+    void acceptsVpa(String vpa) {
+        assertThat(PaymentValidationUtil.isValidVpa(vpa)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "user", "@paytm", "user@", "user@@paytm", "us@er@paytm", "user@ok.icici",
+            "user@ok-icici", "user@ok_icici", "us er@paytm", "user+1@paytm", "üser@paytm", "user@paytm "})
+    void rejectsVpa(String vpa) {
+        assertThat(PaymentValidationUtil.isValidVpa(vpa)).isFalse();
+    }
+
+    @Test
+    void rejectsNullVpa() {
+        assertThat(PaymentValidationUtil.isValidVpa(null)).isFalse();
+    }
+
+    // ---- equivalence with the regex implementation ----
+
+    @ParameterizedTest
+    @MethodSource("cardNumbers")
+    void cardNumberMatchesLegacy(String number) {
+        assertThat(PaymentValidationUtil.isValidCardNumber(number))
+                .isEqualTo(LegacyValidation.isValidCardNumber(number));
+        assertThat(PaymentValidationUtil.detectCardNetwork(number))
+                .isEqualTo(LegacyValidation.detectCardNetwork(number));
+    }
+
+    @ParameterizedTest
+    @MethodSource("vpas")
+    void vpaMatchesLegacy(String vpa) {
+        assertThat(PaymentValidationUtil.isValidVpa(vpa)).isEqualTo(LegacyValidation.isValidVpa(vpa));
+    }
+
+    @ParameterizedTest
+    @MethodSource("expiries")
+    void expiryMatchesLegacy(String month, String year) {
+        assertThat(PaymentValidationUtil.isValidExpiry(month, year))
+                .isEqualTo(LegacyValidation.isValidExpiry(month, year));
+    }
+
+    // The rewrite only takes ASCII digits, so what Integer.parseInt and \s
+    // let through no longer passes
+    @Test
+    void isStricterThanLegacyOnSignsAndWhitespace() {
+        assertThat(LegacyValidation.isValidExpiry("+1", NEXT_YEAR)).isTrue();
+        assertThat(PaymentValidationUtil.isValidExpiry("+1", NEXT_YEAR)).isFalse();
+        assertThat(LegacyValidation.isValidExpiry("012", NEXT_YEAR)).isTrue();
+        assertThat(PaymentValidationUtil.isValidExpiry("012", NEXT_YEAR)).isFalse();
+        assertThat(LegacyValidation.isValidCardNumber("4111\t1111\t1111\t1111")).isTrue();
+        assertThat(PaymentValidationUtil.isValidCardNumber("4111\t1111\t1111\t1111")).isFalse();
+    }
+
+    static Stream<String> cardNumbers() {
+        List<String> numbers = new ArrayList<>(List.of("", "4", "5", "8", "34", "4x", "x4", " 5 1", "5-a1",
+                VISA, "4111 1111 1111 1111", "4111-1111-1111-1111", "4111111111111112", "4111a11111111111",
+                "---", "    "));
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder digits = new StringBuilder();
+            int length = 11 + random.nextInt(10);
+            for (int d = 0; d < length; d++) {
+                digits.append((char) ('0' + random.nextInt(10)));
+            }
+            String number = random.nextBoolean() ? withCheckDigit(digits.toString()) : digits.toString();
+            numbers.add(withSeparators(number, random));
+        }
+        return numbers.stream();
+    }
+
+    static Stream<String> vpas() {
+        return Stream.of("user@paytm", "a@b", "first.last@okicici", "user_name-1@ybl", "._-@bank9", "",
+                "user", "@paytm", "user@", "@", "user@@paytm", "us@er@paytm", "user@ok.icici", "user@ok-icici",
+                "us er@paytm", "user+1@paytm", "üser@paytm", "user@paytm\n", "user@paytm ", "user@pay١tm");
+    }
+
+    static Stream<Arguments> expiries() {
+        YearMonth last = NOW.minusMonths(1);
+        List<Arguments> expiries = new ArrayList<>();
+        for (String month : List.of("", "0", "00", "1", "01", "9", "09", "12", "13", "1a", " 1",
+                Integer.toString(NOW.getMonthValue()), Integer.toString(last.getMonthValue()))) {
+            for (String year : List.of(NEXT_YEAR, NEXT_YEAR.substring(2), Integer.toString(NOW.getYear()),
+                    Integer.toString(NOW.getYear()).substring(2), Integer.toString(last.getYear()),
+                    "2000", "00", "99", "203", "", "20x9")) {
+                expiries.add(Arguments.of(month, year));
+            }
+        }
+        return expiries.stream();
+    }
+
+    private static CardValidationResult validate(String number) {
+        return PaymentValidationUtil.validateCard(number, "12", "2099", "123");
+    }
+
+    // Appends the Luhn check digit
+    private static String withCheckDigit(String partial) {
+        int sum = 0;
+        for (int i = partial.length() - 1, position = 1; i >= 0; i--, position++) {
+            int d = partial.charAt(i) - '0';
+            if ((position & 1) == 1) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+        }
+        return partial + (10 - sum % 10) % 10;
+    }
+
+    private static String withSeparators(String number, Random random) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < number.length(); i++) {
+            if (i > 0 && random.nextInt(5) == 0) {
+                out.append(random.nextBoolean() ? ' ' : '-');
+            }
+            out.append(number.charAt(i));
+        }
+        return out.toString();
+    }
+}
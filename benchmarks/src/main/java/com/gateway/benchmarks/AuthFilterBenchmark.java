@@ -0,0 +1,108 @@
+package com.gateway.benchmarks;
+
+import com.gateway.config.ApiKeyAuthFilter;
+import com.gateway.models.Merchant;
+import com.gateway.repositories.MerchantRepository;
+import com.gateway.services.MerchantCredentialCache;
+import com.gateway.services.MerchantRateLimiter;
+import com.gateway.services.PaymentMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication decisions made by ApiKeyAuthFilter: a valid key, a wrong
+ * secret, an unknown key, and a full pass through the filter. The
+ * repository is an in-memory stand-in, so this measures the gateway's own
+ * cost once the credential cache is warm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthFilterBenchmark {
+
+    private static final String API_KEY = "key_test_abc123";
+    private static final String API_SECRET = "secret_test_xyz789";
+
+    private MerchantCredentialCache cache;
+    private ApiKeyAuthFilter filter;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        Merchant merchant = new Merchant();
+        merchant.setId(UUID.fromString("550e8400-e29b-41d4-a716-446655440000"));
+        merchant.setName("Test Merchant");
+        merchant.setEmail("test@example.com");
+        merchant.setApiKey(API_KEY);
+        merchant.setApiSecret(API_SECRET);
+
+        cache = new MerchantCredentialCache(repositoryWith(merchant), Duration.ofMinutes(5), Duration.ofSeconds(30), 10_000);
+        // Limits high enough never to throttle, so the filter benchmarks
+        // include the rate limiter's CAS but not its 429 path
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MerchantRateLimiter rateLimiter = new MerchantRateLimiter(registry, true, 1_000_000_000, 1_000_000_000);
+        filter = new ApiKeyAuthFilter(cache, rateLimiter, new PaymentMetrics(registry));
+    }
+
+    @Benchmark
+    public Merchant validCredentials() {
+        return cache.authenticate(API_KEY, API_SECRET);
+    }
+
+    @Benchmark
+    public Merchant wrongSecret() {
+        return cache.authenticate(API_KEY, "secret_test_wrong1");
+    }
+
+    @Benchmark
+    public Merchant unknownKey() {
+        return cache.authenticate("key_unknown_000000", API_SECRET);
+    }
+
+    @Benchmark
+    public int filterAuthenticatedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/orders");
+        request.addHeader("X-Api-Key", API_KEY);
+        request.addHeader("X-Api-Secret", API_SECRET);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int filterRejectedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/orders");
+        request.addHeader("X-Api-Key", API_KEY);
+        request.addHeader("X-Api-Secret", "secret_test_wrong1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+
+    private static MerchantRepository repositoryWith(Merchant merchant) {
+        return (MerchantRepository) Proxy.newProxyInstance(
+                MerchantRepository.class.getClassLoader(),
+                new Class<?>[]{MerchantRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByApiKey")) {
+                        return merchant.getApiKey().equals(args[0]) ? Optional.of(merchant) : Optional.empty();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+}
@@ -0,0 +1,37 @@
+package com.gateway.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Regression run of the in-memory hot-path benchmarks with the GC
+ * (allocation) profiler attached, writing machine-readable results to
+ * jmh-result.json so runs can be diffed:
+ *
+ *   java -cp target/benchmarks.jar com.gateway.benchmarks.GatewayBenchmarks
+ *
+ * Any regular JMH option can be appended (e.g. -f 3, -prof stack).
+ * IdInsertBenchmark needs a database and is left out; run it through the
+ * plain JMH entry point instead.
+ */
+public class GatewayBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(AuthFilterBenchmark.class.getSimpleName())
+                .include(IdGeneratorBenchmark.class.getSimpleName())
+                .include(JsonBenchmark.class.getSimpleName())
+                .include(ValidationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
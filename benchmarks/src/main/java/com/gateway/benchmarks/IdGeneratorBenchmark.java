@@ -0,0 +1,35 @@
+package com.gateway.benchmarks;
+
+import com.gateway.services.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id generation under contention: the old per-controller shared
+ * java.util.Random scheme against IdGenerator.
+ *
+ *   java -jar target/benchmarks.jar IdGeneratorBenchmark -t 8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator idGenerator = new IdGenerator();
+    private final Random random = new Random();
+
+    @Benchmark
+    public String timeOrdered() {
+        return idGenerator.next("pay_");
+    }
+
+    @Benchmark
+    public String legacySharedRandom() {
+        return LegacyIds.generateId(random, "pay_");
+    }
+}
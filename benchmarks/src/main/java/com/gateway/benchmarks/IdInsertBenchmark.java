@@ -0,0 +1,95 @@
+package com.gateway.benchmarks;
+
+import com.gateway.services.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput into a VARCHAR(64) primary key with random ids versus
+ * time-ordered ids. Each operation inserts one batch of rows in its own
+ * transaction; the table keeps growing across iterations, which is where
+ * random ids start to hurt (page splits, index pages falling out of cache).
+ *
+ * Needs a Postgres to talk to, e.g. the docker-compose one:
+ *
+ *   java -jar target/benchmarks.jar IdInsertBenchmark \
+ *       -p url=jdbc:postgresql://localhost:5432/payment_gateway
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class IdInsertBenchmark {
+
+    @Param({"jdbc:postgresql://localhost:5432/payment_gateway"})
+    public String url;
+
+    @Param({"gateway_user"})
+    public String user;
+
+    @Param({"gateway_pass"})
+    public String password;
+
+    @Param({"random", "time_ordered"})
+    public String scheme;
+
+    private static final int BATCH_SIZE = 500;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private IdGenerator idGenerator;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(url, user, password);
+        connection.setAutoCommit(false);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_ids");
+            st.execute("""
+                CREATE TABLE bench_ids (
+                    id VARCHAR(64) PRIMARY KEY,
+                    amount INTEGER NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+        }
+        connection.commit();
+
+        insert = connection.prepareStatement("INSERT INTO bench_ids (id, amount) VALUES (?, ?)");
+        idGenerator = new IdGenerator();
+        random = new Random();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch() throws SQLException {
+        boolean ordered = "time_ordered".equals(scheme);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setString(1, ordered ? idGenerator.next("pay_") : LegacyIds.generateId(random, "pay_"));
+            insert.setInt(2, 50000);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_ids");
+        }
+        connection.commit();
+        connection.close();
+    }
+}
@@ -0,0 +1,110 @@
+package com.gateway.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.gateway.models.Order;
+import com.gateway.models.OrderSnapshot;
+import com.gateway.models.Payment;
+import com.gateway.util.ErrorResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of response bodies, per request as the controllers do
+ * it: the legacy* benchmarks build Map.of payloads (as the controllers did
+ * before the typed models), the others use the Payment / Order records and
+ * the pre-serialized ErrorResponse constants.
+ *
+ * The mapper is configured like the application's (Blackbird, ISO dates).
+ * Run with -prof gc to compare gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final UUID MERCHANT_ID = UUID.fromString("550e8400-e29b-41d4-a716-446655440000");
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .addModule(new BlackbirdModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Benchmark
+    public byte[] legacyOrderCreated() throws Exception {
+        return objectMapper.writeValueAsBytes(Map.of(
+                "id", "order_01YKmhJJylR0HWiS",
+                "merchant_id", MERCHANT_ID.toString(),
+                "amount", 50000,
+                "currency", "INR",
+                "status", "created",
+                "created_at", Instant.now().toString()
+        ));
+    }
+
+    @Benchmark
+    public byte[] orderCreated() throws Exception {
+        return objectMapper.writeValueAsBytes(Order.created(
+                new OrderSnapshot("order_01YKmhJJylR0HWiS", MERCHANT_ID, 50000, "INR", "created"), Instant.now()));
+    }
+
+    @Benchmark
+    public byte[] legacyCardPaymentCreated() throws Exception {
+        return objectMapper.writeValueAsBytes(Map.of(
+                "id", "pay_01YKmhMxylV02RCJ",
+                "order_id", "order_01YKmhJJylR0HWiS",
+                "amount", 50000,
+                "currency", "INR",
+                "method", "card",
+                "card_network", "visa",
+                "card_last4", "1111",
+                "status", "processing",
+                "created_at", Instant.now().toString()
+        ));
+    }
+
+    @Benchmark
+    public byte[] cardPaymentCreated() throws Exception {
+        return objectMapper.writeValueAsBytes(new Payment(
+                "pay_01YKmhMxylV02RCJ", "order_01YKmhJJylR0HWiS", 50000, "INR", "card", null, "visa", "1111",
+                "processing", null, null, Instant.now(), null));
+    }
+
+    @Benchmark
+    public byte[] legacyAuthError() throws Exception {
+        return objectMapper.writeValueAsBytes(
+                Map.of("error", Map.of("code", "AUTHENTICATION_ERROR", "description", "Invalid API credentials")));
+    }
+
+    @Benchmark
+    public byte[] authError() {
+        return ErrorResponse.UNAUTHORIZED.getBody();
+    }
+
+    @Benchmark
+    public byte[] legacyNotFoundError() throws Exception {
+        return objectMapper.writeValueAsBytes(
+                Map.of("error", Map.of("code", "NOT_FOUND_ERROR", "description", "Order not found")));
+    }
+
+    @Benchmark
+    public byte[] notFoundError() {
+        return ErrorResponse.ORDER_NOT_FOUND.getBody();
+    }
+
+    @Benchmark
+    public byte[] customError() throws Exception {
+        return objectMapper.writeValueAsBytes(ErrorResponse.custom("INVALID_VPA", "Invalid VPA format"));
+    }
+}
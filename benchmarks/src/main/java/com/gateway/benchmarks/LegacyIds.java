@@ -0,0 +1,23 @@
+package com.gateway.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Copy of the id scheme the controllers used before IdGenerator, kept as a
+ * baseline.
+ */
+final class LegacyIds {
+
+    private static final String CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private LegacyIds() {
+    }
+
+    static String generateId(Random random, String prefix) {
+        StringBuilder sb = new StringBuilder(prefix);
+        for (int i = 0; i < 16; i++) {
+            sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.gateway.benchmarks;
+
+import java.time.YearMonth;
+import java.util.regex.Pattern;
+
+/**
+ * Copy of the regex-based validation the gateway used before
+ * PaymentValidationUtil.validateCard, kept as a baseline.
+ */
+final class LegacyValidation {
+
+    private LegacyValidation() {
+    }
+
+    static boolean isValidVpa(String vpa) {
+        return Pattern.matches("^[a-zA-Z0-9._-]+@[a-zA-Z0-9]+$", vpa);
+    }
+
+    static boolean isValidCardNumber(String cardNumber) {
+        String cleaned = cardNumber.replaceAll("[\\s-]", "");
+        if (!cleaned.matches("\\d{13,19}")) return false;
+
+        int sum = 0;
+        boolean alternate = false;
+        for (int i = cleaned.length() - 1; i >= 0; i--) {
+            int n = cleaned.charAt(i) - '0';
+            if (alternate) {
+                n *= 2;
+                if (n > 9) n -= 9;
+            }
+            sum += n;
+            alternate = !alternate;
+        }
+        return sum % 10 == 0;
+    }
+
+    static String detectCardNetwork(String cardNumber) {
+        String cleaned = cardNumber.replaceAll("[\\s-]", "");
+        if (cleaned.startsWith("4")) return "visa";
+        if (cleaned.matches("^5[1-5].*")) return "mastercard";
+        if (cleaned.startsWith("34") || cleaned.startsWith("37")) return "amex";
+        if (cleaned.startsWith("60") || cleaned.startsWith("65") || cleaned.matches("^8[1-9].*")) return "rupay";
+        return "unknown";
+    }
+
+    static boolean isValidExpiry(String month, String year) {
+        try {
+            int mm = Integer.parseInt(month);
+            int yy = Integer.parseInt(year);
+            if (mm < 1 || mm > 12) return false;
+            if (year.length() == 2) yy += 2000;
+            return !YearMonth.of(yy, mm).isBefore(YearMonth.now());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
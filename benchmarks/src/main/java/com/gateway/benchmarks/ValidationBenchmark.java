@@ -0,0 +1,58 @@
+package com.gateway.benchmarks;
+
+import com.gateway.util.CardValidationResult;
+import com.gateway.util.PaymentValidationUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Card and VPA validation, regex baseline against the single-pass engine.
+ * Run with the GC profiler to see allocation per operation:
+ *
+ *   java -jar target/benchmarks.jar ValidationBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"4111 1111 1111 1111", "5555555555554444", "4111111111111112"})
+    public String cardNumber;
+
+    public String expiryMonth = "12";
+    public String expiryYear = "2030";
+    public String cvv = "123";
+    public String vpa = "customer.name@okaxis";
+
+    @Benchmark
+    public void legacyCard(Blackhole bh) {
+        boolean valid = LegacyValidation.isValidCardNumber(cardNumber)
+                && LegacyValidation.isValidExpiry(expiryMonth, expiryYear)
+                && cvv != null;
+        bh.consume(valid);
+        if (valid) {
+            bh.consume(LegacyValidation.detectCardNetwork(cardNumber));
+            bh.consume(cardNumber.substring(cardNumber.length() - 4));
+        }
+    }
+
+    @Benchmark
+    public CardValidationResult engineCard() {
+        return PaymentValidationUtil.validateCard(cardNumber, expiryMonth, expiryYear, cvv);
+    }
+
+    @Benchmark
+    public boolean legacyVpa() {
+        return LegacyValidation.isValidVpa(vpa);
+    }
+
+    @Benchmark
+    public boolean engineVpa() {
+        return PaymentValidationUtil.isValidVpa(vpa);
+    }
+}
@@ -0,0 +1,121 @@
+package com.gateway.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms and counters for the measurement window.
+ * Requests that start outside the window (warm-up, drain) are ignored. A
+ * request that was shed (503 with Retry-After) and retried counts once, with
+ * its retries, under "shed".
+ */
+class LatencyStats {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+    private final LongAdder droppedArrivals = new LongAdder();
+    private final LongAdder completedFlows = new LongAdder();
+    private final LongAdder failedFlows = new LongAdder();
+
+    private volatile long windowStartNanos;
+    private volatile long windowEndNanos;
+
+    void window(long startNanos, long endNanos) {
+        this.windowStartNanos = startNanos;
+        this.windowEndNanos = endNanos;
+    }
+
+    boolean inWindow(long nanos) {
+        return nanos >= windowStartNanos && nanos < windowEndNanos;
+    }
+
+    void record(String endpoint, long startNanos, long endNanos, boolean ok) {
+        if (!inWindow(startNanos)) {
+            return;
+        }
+        Endpoint e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint());
+        e.latencyMicros.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos)));
+        (ok ? e.ok : e.errors).increment();
+    }
+
+    void shed(String endpoint, long startNanos) {
+        if (inWindow(startNanos)) {
+            endpoints.computeIfAbsent(endpoint, k -> new Endpoint()).shed.increment();
+        }
+    }
+
+    void flowFinished(long startNanos, boolean ok) {
+        if (inWindow(startNanos)) {
+            (ok ? completedFlows : failedFlows).increment();
+        }
+    }
+
+    void arrivalDropped(long startNanos) {
+        if (inWindow(startNanos)) {
+            droppedArrivals.increment();
+        }
+    }
+
+    void print(PrintStream out) {
+        double seconds = (windowEndNanos - windowStartNanos) / 1e9;
+
+        out.printf("%n%-36s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "shed", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (String[] row : rows(seconds)) {
+            out.printf("%-36s %9s %7s %7s %9s %9s %9s %9s %9s%n", (Object[]) row);
+        }
+        out.printf("%nflows: %d completed, %d failed, %d arrivals dropped (max in-flight reached), %.1f flows/s%n",
+                completedFlows.sum(), failedFlows.sum(), droppedArrivals.sum(), completedFlows.sum() / seconds);
+    }
+
+    void writeCsv(Path path) throws IOException {
+        double seconds = (windowEndNanos - windowStartNanos) / 1e9;
+        List<String> lines = new ArrayList<>();
+        lines.add("endpoint,requests,errors,shed,req_per_s,p50_ms,p99_ms,p999_ms,max_ms");
+        for (String[] row : rows(seconds)) {
+            lines.add(String.join(",", row));
+        }
+        Files.write(path, lines);
+    }
+
+    private List<String[]> rows(double seconds) {
+        List<String[]> rows = new ArrayList<>();
+        endpoints.forEach((name, e) -> {
+            Histogram h = e.latencyMicros.copy();
+            long requests = e.ok.sum() + e.errors.sum();
+            rows.add(new String[]{
+                    name,
+                    Long.toString(requests),
+                    Long.toString(e.errors.sum()),
+                    Long.toString(e.shed.sum()),
+                    String.format("%.1f", requests / seconds),
+                    millis(h.getValueAtPercentile(50)),
+                    millis(h.getValueAtPercentile(99)),
+                    millis(h.getValueAtPercentile(99.9)),
+                    millis(h.getMaxValue())
+            });
+        });
+        return rows;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+
+    private static final class Endpoint {
+        final ConcurrentHistogram latencyMicros = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(5), 3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder shed = new LongAdder();
+    }
+}
@@ -0,0 +1,113 @@
+package com.gateway.loadtest;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test for the gateway.
+ *
+ * Boots the gateway against an embedded Postgres (or targets --base-url),
+ * drives order -> payment -> status-poll flows through the public API and
+ * prints p50/p99/p999 latency and throughput per endpoint. See
+ * LoadTestConfig.USAGE for the options.
+ *
+ * Open model (default): flows arrive as a Poisson process at --rate per
+ * second whether or not earlier flows have finished, which is how real
+ * traffic behaves. Closed model (--clients=N): N clients each run one flow
+ * after another, useful for "N concurrent clients" comparisons.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        LocalGateway local = config.baseUrl() == null ? LocalGateway.start(config) : null;
+        String baseUrl = local != null ? local.baseUrl() : config.baseUrl();
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            LatencyStats stats = new LatencyStats();
+            Workload workload = new Workload(client, baseUrl, config, stats);
+
+            long start = System.nanoTime();
+            long measureStart = start + config.warmup().toNanos();
+            long end = measureStart + config.duration().toNanos();
+            stats.window(measureStart, end);
+
+            System.out.printf("Target %s, %s, warm-up %ds, measuring %ds%n", baseUrl,
+                    config.closedModel()
+                            ? config.clients() + " concurrent clients"
+                            : config.rate() + " flows/s",
+                    config.warmup().toSeconds(), config.duration().toSeconds());
+
+            if (config.closedModel()) {
+                runClosed(workload, config, end);
+            } else {
+                runOpen(workload, stats, config, start, end);
+            }
+
+            stats.print(System.out);
+            if (config.reportCsv() != null) {
+                stats.writeCsv(config.reportCsv());
+            }
+        } finally {
+            if (local != null) {
+                local.close();
+            }
+        }
+    }
+
+    private static void runOpen(Workload workload, LatencyStats stats, LoadTestConfig config, long start, long end)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / config.rate();
+
+        long arrival = start;
+        while (arrival < end) {
+            long wait = arrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            long scheduled = arrival;
+            if (inFlight.tryAcquire()) {
+                workload.run(scheduled).whenComplete((ok, error) -> inFlight.release());
+            } else {
+                stats.arrivalDropped(scheduled);
+            }
+
+            // Exponential inter-arrival gaps make a Poisson arrival process
+            arrival += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+        }
+
+        // Let flows that started inside the window finish
+        inFlight.tryAcquire(config.maxInFlight(), 2, TimeUnit.MINUTES);
+    }
+
+    private static void runClosed(Workload workload, LoadTestConfig config, long end) throws InterruptedException {
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < config.clients(); i++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < end) {
+                    try {
+                        workload.run(System.nanoTime()).join();
+                    } catch (Exception failedFlow) {
+                        // counted in the stats; keep going
+                    }
+                }
+            }));
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+    }
+}
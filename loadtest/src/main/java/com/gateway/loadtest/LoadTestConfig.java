@@ -0,0 +1,129 @@
+package com.gateway.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Command line options, all given as --name=value.
+ */
+record LoadTestConfig(
+        String baseUrl,
+        Path appJar,
+        int appPort,
+        String profile,
+        String appArgs,
+        boolean testMode,
+        boolean testPaymentSuccess,
+        int testProcessingDelayMs,
+        double rate,
+        double checkoutShare,
+        int clients,
+        Duration duration,
+        Duration warmup,
+        int polls,
+        Duration pollInterval,
+        int maxRetries,
+        int maxInFlight,
+        Path reportCsv
+) {
+
+    static final String USAGE = """
+            Usage: java -jar loadtest/target/loadtest.jar [--name=value ...]
+
+            Target
+              --base-url=URL                 load an already running gateway instead of booting one
+              --app-jar=PATH                 gateway jar to boot (default backend/target/*-exec.jar)
+              --app-port=18000               port for the booted gateway
+              --profile=NAME                 Spring profile for the booted gateway, e.g. virtual
+              --app-args="..."               extra arguments for the booted gateway
+              --test-mode=true               TEST_MODE for the booted gateway
+              --test-payment-success=true    TEST_PAYMENT_SUCCESS
+              --test-processing-delay=1000   TEST_PROCESSING_DELAY in ms
+
+            Traffic
+              --rate=50                      open model: payment flows started per second (Poisson arrivals)
+              --clients=0                    closed model instead: N concurrent clients looping flows
+              --checkout-share=0.5           fraction of flows that pay through /api/v1/checkout/pay
+              --duration=60s                 measured duration
+              --warmup=10s                   unmeasured warm-up before that
+              --polls=3                      status polls per payment (GET /api/v1/payments/{id}, If-None-Match)
+              --poll-interval=500ms          delay between status polls
+              --max-retries=3                retries of a request answered 503 with Retry-After, after that delay
+              --max-in-flight=10000          open model: arrivals beyond this many running flows are dropped
+
+            Output
+              --report-csv=PATH              also write the per-endpoint table as CSV
+            """;
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                System.out.println(USAGE);
+                System.exit(0);
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unrecognised argument " + arg + "\n\n" + USAGE);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        LoadTestConfig config = new LoadTestConfig(
+                take(options, "base-url", null),
+                Path.of(take(options, "app-jar", defaultAppJar())),
+                Integer.parseInt(take(options, "app-port", "18000")),
+                take(options, "profile", null),
+                take(options, "app-args", ""),
+                Boolean.parseBoolean(take(options, "test-mode", "true")),
+                Boolean.parseBoolean(take(options, "test-payment-success", "true")),
+                Integer.parseInt(take(options, "test-processing-delay", "1000")),
+                Double.parseDouble(take(options, "rate", "50")),
+                Double.parseDouble(take(options, "checkout-share", "0.5")),
+                Integer.parseInt(take(options, "clients", "0")),
+                duration(take(options, "duration", "60s")),
+                duration(take(options, "warmup", "10s")),
+                Integer.parseInt(take(options, "polls", "3")),
+                duration(take(options, "poll-interval", "500ms")),
+                Integer.parseInt(take(options, "max-retries", "3")),
+                Integer.parseInt(take(options, "max-in-flight", "10000")),
+                Optional.ofNullable(take(options, "report-csv", null)).map(Path::of).orElse(null)
+        );
+
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + options.keySet() + "\n\n" + USAGE);
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value != null ? value : defaultValue;
+    }
+
+    boolean closedModel() {
+        return clients > 0;
+    }
+
+    private static String defaultAppJar() {
+        for (String candidate : new String[]{"backend/target", "../backend/target"}) {
+            Path jar = Path.of(candidate, "payment-gateway-0.0.1-SNAPSHOT-exec.jar");
+            if (Files.exists(jar)) {
+                return jar.toString();
+            }
+        }
+        return "backend/target/payment-gateway-0.0.1-SNAPSHOT-exec.jar";
+    }
+
+    // 90s, 500ms, 2m
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        if (value.endsWith("s")) return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        if (value.endsWith("m")) return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+}
@@ -0,0 +1,134 @@
+package com.gateway.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A throwaway gateway: an embedded Postgres (real server binaries, fresh
+ * data directory) plus the gateway jar started as a child process against
+ * it. schema.sql is applied by the gateway itself on startup, exactly as in
+ * docker-compose.
+ *
+ * The gateway runs in its own JVM so that TEST_MODE and friends can be set
+ * through its environment and so the load generator's allocation does not
+ * show up in the gateway's GC.
+ */
+class LocalGateway implements AutoCloseable {
+
+    private static final String DB_NAME = "payment_gateway";
+    private static final String DB_USER = "gateway_user";
+    private static final String DB_PASSWORD = "gateway_pass";
+
+    private final EmbeddedPostgres postgres;
+    private final Process gateway;
+    private final String baseUrl;
+
+    private LocalGateway(EmbeddedPostgres postgres, Process gateway, String baseUrl) {
+        this.postgres = postgres;
+        this.gateway = gateway;
+        this.baseUrl = baseUrl;
+    }
+
+    static LocalGateway start(LoadTestConfig config) throws Exception {
+        if (!Files.exists(config.appJar())) {
+            throw new IllegalStateException("Gateway jar not found at " + config.appJar()
+                    + "; build it with mvn -f backend/pom.xml package -DskipTests or pass --app-jar");
+        }
+
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        try (Connection c = postgres.getPostgresDatabase().getConnection();
+             Statement st = c.createStatement()) {
+            st.execute("CREATE USER " + DB_USER + " WITH PASSWORD '" + DB_PASSWORD + "' SUPERUSER");
+            st.execute("CREATE DATABASE " + DB_NAME + " OWNER " + DB_USER);
+        }
+
+        String jdbcUrl = "jdbc:postgresql://localhost:" + postgres.getPort() + "/" + DB_NAME;
+
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-jar", config.appJar().toString(),
+                "--server.port=" + config.appPort(),
+                "--management.server.port=0", // not scraped; keep it off 8081
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=" + DB_USER,
+                "--spring.datasource.password=" + DB_PASSWORD
+        ));
+        if (!config.appArgs().isBlank()) {
+            command.addAll(Arrays.asList(config.appArgs().trim().split("\\s+")));
+        }
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("loadtest-gateway.log").toFile());
+
+        Map<String, String> env = builder.environment();
+        env.put("TEST_MODE", Boolean.toString(config.testMode()));
+        env.put("TEST_PAYMENT_SUCCESS", Boolean.toString(config.testPaymentSuccess()));
+        env.put("TEST_PROCESSING_DELAY", Integer.toString(config.testProcessingDelayMs()));
+        if (config.profile() != null) {
+            env.put("SPRING_PROFILES_ACTIVE", config.profile());
+        }
+
+        System.out.println("Embedded Postgres on port " + postgres.getPort() + ", starting gateway (log: loadtest-gateway.log)");
+        Process gateway = builder.start();
+
+        LocalGateway local = new LocalGateway(postgres, gateway, "http://localhost:" + config.appPort());
+        try {
+            local.awaitHealthy(Duration.ofMinutes(2));
+        } catch (Exception e) {
+            local.close();
+            throw e;
+        }
+        return local;
+    }
+
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    private void awaitHealthy(Duration timeout) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/health")).build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (System.nanoTime() < deadline) {
+            if (!gateway.isAlive()) {
+                throw new IllegalStateException("Gateway exited with code " + gateway.exitValue() + ", see loadtest-gateway.log");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException notUpYet) {
+                // keep waiting
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Gateway did not become healthy within " + timeout);
+    }
+
+    @Override
+    public void close() throws IOException {
+        gateway.destroy();
+        try {
+            gateway.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        postgres.close();
+    }
+}
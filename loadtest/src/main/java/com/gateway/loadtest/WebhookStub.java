@@ -0,0 +1,145 @@
+package com.gateway.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local webhook receiver for exercising the gateway's webhook delivery.
+ *
+ *   java -cp loadtest/target/loadtest.jar com.gateway.loadtest.WebhookStub \
+ *       --port=9090 --secret=secret_test_xyz789 --fail-rate=0.2 --delay-ms=50
+ *
+ * then start the gateway with TEST_WEBHOOK_URL=http://localhost:9090/webhook.
+ * Checks every signature, answers 500 for a --fail-rate share of requests
+ * (to exercise retries) and prints counts every 5 seconds: unique deliveries,
+ * duplicates, bad signatures and the highest number of concurrent requests
+ * seen.
+ */
+public class WebhookStub {
+
+    private final String secret;
+    private final double failRate;
+    private final long delayMillis;
+
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> events = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder badSignatures = new LongAdder();
+    private final LongAdder failedOnPurpose = new LongAdder();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    WebhookStub(String secret, double failRate, long delayMillis) {
+        this.secret = secret;
+        this.failRate = failRate;
+        this.delayMillis = delayMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new ConcurrentHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        int port = Integer.parseInt(options.getOrDefault("port", "9090"));
+        WebhookStub stub = new WebhookStub(
+                options.getOrDefault("secret", "secret_test_xyz789"),
+                Double.parseDouble(options.getOrDefault("fail-rate", "0")),
+                Long.parseLong(options.getOrDefault("delay-ms", "0"))
+        );
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/", stub::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        System.out.printf("Webhook stub listening on http://localhost:%d/webhook%n", port);
+
+        while (true) {
+            Thread.sleep(5000);
+            stub.print();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int now = concurrent.incrementAndGet();
+        maxConcurrent.accumulateAndGet(now, Math::max);
+        try (exchange; InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            received.increment();
+
+            String id = exchange.getRequestHeaders().getFirst("X-Webhook-Id");
+            String timestamp = exchange.getRequestHeaders().getFirst("X-Webhook-Timestamp");
+            String signature = exchange.getRequestHeaders().getFirst("X-Webhook-Signature");
+
+            if (id == null || timestamp == null || signature == null || !validSignature(timestamp, body, signature)) {
+                badSignatures.increment();
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+
+            if (ThreadLocalRandom.current().nextDouble() < failRate) {
+                failedOnPurpose.increment();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            if (!seen.add(id)) {
+                duplicates.increment();
+            }
+            String event = exchange.getRequestHeaders().getFirst("X-Webhook-Event");
+            events.computeIfAbsent(String.valueOf(event), e -> new LongAdder()).increment();
+            exchange.sendResponseHeaders(200, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrent.decrementAndGet();
+        }
+    }
+
+    private boolean validSignature(String timestamp, byte[] body, String signature) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+            String expected = "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+            return MessageDigest.isEqual(
+                    expected.getBytes(StandardCharsets.UTF_8),
+                    signature.getBytes(StandardCharsets.UTF_8)
+            );
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void print() {
+        System.out.printf("received %d, delivered %d unique %s, duplicates %d, failed on purpose %d, "
+                        + "bad signatures %d, max concurrent %d%n",
+                received.sum(), seen.size(), events, duplicates.sum(), failedOnPurpose.sum(),
+                badSignatures.sum(), maxConcurrent.get());
+    }
+}
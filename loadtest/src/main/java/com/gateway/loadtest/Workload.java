@@ -0,0 +1,164 @@
+package com.gateway.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One payment flow as a customer and merchant would drive it:
+ *
+ *   merchant API: POST /orders -> POST /payments      -> status polls
+ *   checkout:     POST /orders -> GET /orders/{id}/public -> POST /checkout/pay -> status polls
+ *
+ * The first request's latency is measured from the flow's scheduled arrival
+ * time rather than from when it was actually sent, so a stalled gateway
+ * shows up as latency instead of silently lowering the offered load.
+ *
+ * A 503 with Retry-After (load shedding) is retried after that delay, up to
+ * --max-retries times, as a client library would; the wait counts towards
+ * the request's latency.
+ */
+class Workload {
+
+    private static final String API_KEY = "key_test_abc123";
+    private static final String API_SECRET = "secret_test_xyz789";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final LoadTestConfig config;
+    private final LatencyStats stats;
+    private final ObjectMapper json = new ObjectMapper();
+    private final Executor pollDelay;
+
+    Workload(HttpClient client, String baseUrl, LoadTestConfig config, LatencyStats stats) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.config = config;
+        this.stats = stats;
+        this.pollDelay = CompletableFuture.delayedExecutor(config.pollInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    CompletableFuture<Void> run(long arrivalNanos) {
+        boolean checkout = ThreadLocalRandom.current().nextDouble() < config.checkoutShare();
+        boolean upi = ThreadLocalRandom.current().nextBoolean();
+
+        CompletableFuture<String> orderId = send("POST /api/v1/orders",
+                authenticated(post("/api/v1/orders", "{\"amount\":50000}")), arrivalNanos)
+                .thenApply(body -> body.get("id").asText());
+
+        CompletableFuture<String> paymentId;
+        if (checkout) {
+            paymentId = orderId
+                    .thenCompose(id -> send("GET /api/v1/orders/{id}/public",
+                            HttpRequest.newBuilder(uri("/api/v1/orders/" + id + "/public")), System.nanoTime())
+                            .thenApply(body -> id))
+                    .thenCompose(id -> send("POST /api/v1/checkout/pay",
+                            post("/api/v1/checkout/pay", paymentBody(id, upi)), System.nanoTime()))
+                    .thenApply(body -> body.get("id").asText());
+        } else {
+            paymentId = orderId
+                    .thenCompose(id -> send("POST /api/v1/payments",
+                            authenticated(post("/api/v1/payments", paymentBody(id, upi))), System.nanoTime()))
+                    .thenApply(body -> body.get("id").asText());
+        }
+
+        return paymentId
+                .thenCompose(id -> poll(id, config.polls(), null))
+                .whenComplete((ok, error) -> stats.flowFinished(arrivalNanos, error == null));
+    }
+
+    // Polls like a well-behaved integration: If-None-Match with the last
+    // ETag, so an unchanged payment costs a 304
+    private CompletableFuture<Void> poll(String paymentId, int remaining, String etag) {
+        if (remaining == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> null, pollDelay)
+                .thenCompose(ignored -> {
+                    HttpRequest.Builder request = authenticated(HttpRequest.newBuilder(uri("/api/v1/payments/" + paymentId)));
+                    if (etag != null) {
+                        request.header("If-None-Match", etag);
+                    }
+                    return exchange("GET /api/v1/payments/{id}", request, System.nanoTime());
+                })
+                .thenCompose(response -> response.statusCode() == 304
+                        || "processing".equals(parse(response).path("status").asText())
+                        ? poll(paymentId, remaining - 1, response.headers().firstValue("ETag").orElse(etag))
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    private CompletableFuture<JsonNode> send(String endpoint, HttpRequest.Builder request, long startNanos) {
+        return exchange(endpoint, request, startNanos).thenApply(this::parse);
+    }
+
+    private CompletableFuture<HttpResponse<String>> exchange(String endpoint, HttpRequest.Builder request, long startNanos) {
+        return exchange(endpoint, request, startNanos, config.maxRetries());
+    }
+
+    private CompletableFuture<HttpResponse<String>> exchange(String endpoint, HttpRequest.Builder request,
+                                                             long startNanos, int retriesLeft) {
+        return client.sendAsync(request.timeout(Duration.ofSeconds(60)).build(), HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    long retryAfterSeconds = error == null && response.statusCode() == 503
+                            ? response.headers().firstValueAsLong("Retry-After").orElse(-1)
+                            : -1;
+                    if (retryAfterSeconds >= 0 && retriesLeft > 0) {
+                        stats.shed(endpoint, startNanos);
+                        Executor delay = CompletableFuture.delayedExecutor(retryAfterSeconds, TimeUnit.SECONDS);
+                        return CompletableFuture.supplyAsync(() -> null, delay)
+                                .thenCompose(ignored -> exchange(endpoint, request, startNanos, retriesLeft - 1));
+                    }
+
+                    boolean ok = error == null && (response.statusCode() / 100 == 2 || response.statusCode() == 304);
+                    stats.record(endpoint, startNanos, System.nanoTime(), ok);
+
+                    if (!ok) {
+                        throw new CompletionException(new IllegalStateException(endpoint + " failed: "
+                                + (error != null ? error : response.statusCode() + " " + response.body())));
+                    }
+                    return CompletableFuture.completedFuture(response);
+                })
+                .thenCompose(response -> response);
+    }
+
+    private JsonNode parse(HttpResponse<String> response) {
+        try {
+            return json.readTree(response.body());
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private static HttpRequest.Builder authenticated(HttpRequest.Builder request) {
+        return request.header("X-Api-Key", API_KEY).header("X-Api-Secret", API_SECRET);
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static String paymentBody(String orderId, boolean upi) {
+        if (upi) {
+            return "{\"order_id\":\"" + orderId + "\",\"method\":\"upi\",\"vpa\":\"loadtest@okaxis\"}";
+        }
+        return "{\"order_id\":\"" + orderId + "\",\"method\":\"card\",\"card\":{"
+                + "\"number\":\"4111111111111111\",\"expiry_month\":\"12\",\"expiry_year\":\"2035\","
+                + "\"cvv\":\"123\",\"holder_name\":\"Load Test\"}}";
+    }
+}